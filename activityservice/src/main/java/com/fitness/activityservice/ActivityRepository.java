@@ -1,12 +1,22 @@
 package com.fitness.activityservice;
 
 import com.fitness.activityservice.model.Activity;
+import com.fitness.activityservice.model.ActivityType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Range;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface ActivityRepository extends MongoRepository<Activity, String> {
     List<Activity> findByUserId(String userId);
+
+    // Paged lookups backed by the (userId, startTime) compound index
+    List<Activity> findByUserId(String userId, Pageable pageable);
+    List<Activity> findByUserIdAndType(String userId, ActivityType type, Pageable pageable);
+    List<Activity> findByUserIdAndStartTimeBetween(String userId, Range<LocalDateTime> startTime, Pageable pageable);
+    List<Activity> findByUserIdAndTypeAndStartTimeBetween(String userId, ActivityType type, Range<LocalDateTime> startTime, Pageable pageable);
 }
@@ -0,0 +1,13 @@
+package com.fitness.activityservice;
+
+import com.fitness.activityservice.model.StatsGranularity;
+import com.fitness.activityservice.model.UserStats;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface UserStatsRepository extends MongoRepository<UserStats, String> {
+    List<UserStats> findByUserIdAndGranularity(String userId, StatsGranularity granularity);
+}
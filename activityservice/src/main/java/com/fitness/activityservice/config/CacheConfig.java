@@ -0,0 +1,51 @@
+package com.fitness.activityservice.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class CacheConfig {
+
+    @Value("${user.validation.cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${user.validation.cache.positive-ttl:10m}")
+    private Duration positiveTtl;
+
+    @Value("${user.validation.cache.negative-ttl:30s}")
+    private Duration negativeTtl;
+
+    @Bean
+    public Cache<String, Boolean> userValidationCache(MeterRegistry meterRegistry) {
+        // Valid users are stable, so they live much longer than "not found" answers
+        Cache<String, Boolean> cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, Boolean>() {
+                    @Override
+                    public long expireAfterCreate(String userId, Boolean valid, long currentTime) {
+                        return (valid ? positiveTtl : negativeTtl).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String userId, Boolean valid, long currentTime, long currentDuration) {
+                        return expireAfterCreate(userId, valid, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String userId, Boolean valid, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "userValidation");
+    }
+}
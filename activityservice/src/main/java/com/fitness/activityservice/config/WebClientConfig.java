@@ -1,13 +1,25 @@
 package com.fitness.activityservice.config;
 
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+
+import java.time.Duration;
 
 @Configuration
 public class WebClientConfig {
 
+    @Value("${user-service.client.connect-timeout:2s}")
+    private Duration connectTimeout;
+
+    @Value("${user-service.client.response-timeout:3s}")
+    private Duration responseTimeout;
+
     @Bean
     @LoadBalanced
     public WebClient.Builder webClientBuilder() {
@@ -16,8 +28,12 @@ public class WebClientConfig {
 
     @Bean
     public WebClient userServiceWebClient(WebClient.Builder webClientBuilder) {
+        HttpClient httpClient = HttpClient.create()
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(responseTimeout);
         return webClientBuilder
                 .baseUrl("http://USER-SERVICE")
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
                 .build();
     }
 }
@@ -1,7 +1,10 @@
 package com.fitness.activityservice.controller;
 
+import com.fitness.activityservice.dto.ActivityBatchResponse;
+import com.fitness.activityservice.dto.ActivityPageResponse;
 import com.fitness.activityservice.dto.ActivityRequest;
 import com.fitness.activityservice.dto.ActivityResponse;
+import com.fitness.activityservice.dto.UserStatsResponse;
 import com.fitness.activityservice.service.ActivityService;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -9,6 +12,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
@@ -25,19 +29,29 @@ public class ActivityController {
     private ActivityService activityService;
 
     @PostMapping
-    public ResponseEntity<ActivityResponse> trackActivity(
+    public Mono<ResponseEntity<ActivityResponse>> trackActivity(
             @Valid @RequestBody ActivityRequest request, 
             @RequestHeader("X-User-ID") @NotBlank String userId) {
         log.info("Tracking activity for user: {}", userId);
-        try {
-            request.setUserId(userId);
-            ActivityResponse response = activityService.trackActivity(request);
-            log.info("Activity tracked successfully for user: {}", userId);
-            return ResponseEntity.status(HttpStatus.CREATED).body(response);
-        } catch (Exception e) {
-            log.error("Error tracking activity for user: {}", userId, e);
-            throw e;
-        }
+        request.setUserId(userId);
+        return activityService.trackActivity(request)
+                .map(response -> {
+                    log.info("Activity tracked successfully for user: {}", userId);
+                    return ResponseEntity.status(HttpStatus.CREATED).body(response);
+                })
+                .doOnError(e -> log.error("Error tracking activity for user: {}", userId, e));
+    }
+
+    @PostMapping("/batch")
+    public Mono<ResponseEntity<ActivityBatchResponse>> trackActivities(
+            @Valid @RequestBody List<@Valid ActivityRequest> requests,
+            @RequestHeader("X-User-ID") @NotBlank String userId) {
+        log.info("Tracking batch of {} activities for user: {}", requests.size(), userId);
+        return activityService.trackActivities(userId, requests)
+                .map(response -> ResponseEntity
+                        .status(response.getErrors().isEmpty() ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS)
+                        .body(response))
+                .doOnError(e -> log.error("Error tracking activity batch for user: {}", userId, e));
     }
 
     @GetMapping
@@ -58,6 +72,24 @@ public class ActivityController {
         }
     }
 
+    @GetMapping(params = "after")
+    public ResponseEntity<ActivityPageResponse> getUserActivitiesAfter(
+            @RequestHeader("X-User-ID") @NotBlank String userId,
+            @RequestParam(required = false) String activityType,
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam String after,
+            @RequestParam(defaultValue = "20") int size) {
+        log.info("Fetching activities for user: {} after cursor", userId);
+        try {
+            ActivityPageResponse activities = activityService.getUserActivitiesAfter(userId, activityType, startDate, endDate, after, size);
+            return ResponseEntity.ok(activities);
+        } catch (Exception e) {
+            log.error("Error fetching activities for user: {}", userId, e);
+            throw e;
+        }
+    }
+
     @GetMapping("/{activityId}")
     public ResponseEntity<ActivityResponse> getActivity(
             @PathVariable @NotBlank String activityId) {
@@ -102,12 +134,12 @@ public class ActivityController {
     }
 
     @GetMapping("/stats/{userId}")
-    public ResponseEntity<Object> getUserStats(
+    public ResponseEntity<UserStatsResponse> getUserStats(
             @PathVariable @NotBlank String userId,
             @RequestParam(required = false) String period) {
         log.info("Fetching stats for user: {} for period: {}", userId, period);
         try {
-            Object stats = activityService.getUserStats(userId, period);
+            UserStatsResponse stats = activityService.getUserStats(userId, period);
             return ResponseEntity.ok(stats);
         } catch (Exception e) {
             log.error("Error fetching stats for user: {}", userId, e);
@@ -115,6 +147,18 @@ public class ActivityController {
         }
     }
 
+    @PostMapping("/stats/{userId}/rebuild")
+    public ResponseEntity<Void> rebuildUserStats(@PathVariable @NotBlank String userId) {
+        log.info("Rebuilding stats rollup for user: {}", userId);
+        try {
+            activityService.rebuildUserStats(userId);
+            return ResponseEntity.accepted().build();
+        } catch (Exception e) {
+            log.error("Error rebuilding stats for user: {}", userId, e);
+            throw e;
+        }
+    }
+
     @GetMapping("/health")
     public ResponseEntity<String> health() {
         return ResponseEntity.ok("Activity Service is healthy!");
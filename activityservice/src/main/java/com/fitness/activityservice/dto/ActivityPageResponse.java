@@ -0,0 +1,15 @@
+package com.fitness.activityservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ActivityPageResponse {
+    private List<ActivityResponse> activities;
+    private String nextCursor;
+}
@@ -0,0 +1,15 @@
+package com.fitness.activityservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ActivityTypeStats {
+    private String type;
+    private long activityCount;
+    private double totalCaloriesBurned;
+    private long totalDurationMinutes;
+}
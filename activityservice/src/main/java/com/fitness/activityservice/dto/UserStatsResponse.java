@@ -0,0 +1,28 @@
+package com.fitness.activityservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Activity stats for one user and period. Both stats engines (rollup and aggregation)
+ * answer with this shape.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserStatsResponse {
+    private String userId;
+    private String period;
+    private long totalActivities;
+    private double totalCaloriesBurned;
+    private long totalDurationMinutes;
+    private double averageCaloriesPerActivity;
+    private double averageDurationPerActivity;
+    private List<ActivityTypeStats> activitiesByType;
+    private List<WeeklyActivityStats> weeklySeries;
+}
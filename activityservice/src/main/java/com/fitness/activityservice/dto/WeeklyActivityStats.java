@@ -0,0 +1,19 @@
+package com.fitness.activityservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Totals for one ISO week (Monday-based, numbered within its week-based year).
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class WeeklyActivityStats {
+    private int year;
+    private int week;
+    private long activityCount;
+    private double totalCaloriesBurned;
+    private long totalDurationMinutes;
+}
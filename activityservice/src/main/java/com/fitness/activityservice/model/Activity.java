@@ -1,5 +1,6 @@
 package com.fitness.activityservice.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -7,6 +8,8 @@ import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
@@ -14,6 +17,7 @@ import java.time.LocalDateTime;
 import java.util.Map;
 
 @Document(collection = "activities")
+@CompoundIndex(name = "user_start_time_idx", def = "{'userId': 1, 'startTime': -1, '_id': -1}")
 @Data
 @Builder
 @AllArgsConstructor
@@ -35,4 +39,16 @@ public class Activity {
 
     @LastModifiedDate
     private LocalDateTime updatedAt;
+
+    // Outbox state: set with the activity itself so the write and its event are atomic, and
+    // unset by OutboxRelay once the broker confirms. The sparse index only holds pending rows.
+    @JsonIgnore
+    @Indexed(sparse = true)
+    private Boolean eventPending;
+
+    @JsonIgnore
+    private String eventClaim;
+
+    @JsonIgnore
+    private LocalDateTime eventLockedUntil;
 }
@@ -0,0 +1,34 @@
+package com.fitness.activityservice.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outbox row for a deleted activity. It is written before the activity is removed, because
+ * the removed document can no longer carry the pending-event flag, and OutboxRelay publishes
+ * it only once the activity is really gone.
+ */
+@Document(collection = "activity_tombstones")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ActivityTombstone {
+    @Id
+    private String activityId;
+    private String userId;
+    private LocalDateTime deletedAt;
+
+    @JsonIgnore
+    private String eventClaim;
+
+    @JsonIgnore
+    private LocalDateTime eventLockedUntil;
+}
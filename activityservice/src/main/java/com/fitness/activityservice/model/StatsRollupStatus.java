@@ -0,0 +1,7 @@
+package com.fitness.activityservice.model;
+
+public enum StatsRollupStatus {
+    PENDING,
+    BUILDING,
+    READY
+}
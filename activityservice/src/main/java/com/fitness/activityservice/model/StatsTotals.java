@@ -0,0 +1,14 @@
+package com.fitness.activityservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StatsTotals {
+    private long activityCount;
+    private long totalCalories;
+    private long totalDuration;
+}
@@ -0,0 +1,38 @@
+package com.fitness.activityservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Pre-aggregated activity totals for one user over one day, week or month bucket.
+ * Maintained incrementally with $inc as activities are tracked, updated and deleted.
+ */
+@Document(collection = "user_stats")
+@CompoundIndex(name = "user_granularity_bucket_idx", def = "{'userId': 1, 'granularity': 1, 'bucketStart': 1}")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserStats {
+    @Id
+    private String id;
+    private String userId;
+    private StatsGranularity granularity;
+    private LocalDate bucketStart;
+    private long activityCount;
+    private long totalCalories;
+    private long totalDuration;
+    private Map<String, StatsTotals> byType;
+
+    public static String bucketId(String userId, StatsGranularity granularity, LocalDate bucketStart) {
+        return userId + ":" + granularity + ":" + bucketStart;
+    }
+}
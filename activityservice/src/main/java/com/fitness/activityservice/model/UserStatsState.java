@@ -0,0 +1,33 @@
+package com.fitness.activityservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Per-user marker for the stats rollup. Buckets are only incremented once the user is READY;
+ * until then writes just set dirty, and a background rebuild claimed through claim/leaseUntil
+ * recomputes the buckets from the activities created before its watermark.
+ */
+@Document(collection = "user_stats_state")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserStatsState {
+    @Id
+    private String userId;
+    @Indexed
+    private StatsRollupStatus status;
+    private boolean dirty;
+    private String claim;
+    private LocalDateTime leaseUntil;
+    private LocalDateTime watermark;
+    private LocalDateTime builtAt;
+}
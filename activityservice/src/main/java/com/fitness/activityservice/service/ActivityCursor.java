@@ -0,0 +1,51 @@
+package com.fitness.activityservice.service;
+
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Opaque keyset position for activity listing: the (startTime, id) of the last activity
+ * on the previous page, encoded as URL-safe Base64 so clients treat it as a token.
+ */
+record ActivityCursor(LocalDateTime startTime, String id) {
+
+    private static final String SEPARATOR = "|";
+
+    String encode() {
+        String raw = (startTime != null ? startTime.toString() : "") + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Rows strictly after the cursor in (startTime desc, id desc) order; null start times sort last
+    Criteria seekAfter() {
+        if (startTime == null) {
+            return Criteria.where("startTime").is(null).and("id").lt(id);
+        }
+        return new Criteria().orOperator(
+                Criteria.where("startTime").lt(startTime),
+                Criteria.where("startTime").is(startTime).and("id").lt(id),
+                Criteria.where("startTime").is(null)
+        );
+    }
+
+    static ActivityCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            String startTime = raw.substring(0, separator);
+            String id = raw.substring(separator + 1);
+            if (id.isEmpty()) {
+                throw new IllegalArgumentException("Missing id");
+            }
+            return new ActivityCursor(startTime.isEmpty() ? null : LocalDateTime.parse(startTime), id);
+        } catch (RuntimeException e) {
+            // A malformed token is the client's fault, so it must surface as 400 rather than 500
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor: " + token, e);
+        }
+    }
+}
@@ -1,17 +1,42 @@
 package com.fitness.activityservice.service;
 
 import com.fitness.activityservice.ActivityRepository;
+import com.fitness.activityservice.dto.ActivityBatchError;
+import com.fitness.activityservice.dto.ActivityBatchResponse;
+import com.fitness.activityservice.dto.ActivityPageResponse;
 import com.fitness.activityservice.dto.ActivityRequest;
 import com.fitness.activityservice.dto.ActivityResponse;
+import com.fitness.activityservice.dto.UserStatsResponse;
 import com.fitness.activityservice.model.Activity;
+import com.fitness.activityservice.model.ActivityTombstone;
+import com.fitness.activityservice.model.ActivityType;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Range;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -21,40 +46,106 @@ public class ActivityService {
 
     private final ActivityRepository activityRepository;
     private final UserValidationService userValidationService;
-    private final RabbitTemplate rabbitTemplate;
+    private final MongoTemplate mongoTemplate;
+    private final UserStatsService userStatsService;
+    private final ActivityStatsAggregationService activityStatsAggregationService;
 
-    @Value("${rabbitmq.exchange.name}")
-    private String exchange;
+    @Value("${activity.batch.max-size:500}")
+    private int maxBatchSize;
 
-    @Value("${rabbitmq.routing.key}")
-    private String routingKey;
+    // "rollup" reads pre-aggregated buckets, "aggregation" runs a server-side pipeline over activities
+    @Value("${activity.stats.engine:rollup}")
+    private String statsEngine;
 
-    public ActivityResponse trackActivity(ActivityRequest request) {
+    public Mono<ActivityResponse> trackActivity(ActivityRequest request) {
+        return userValidationService.validateUser(request.getUserId())
+                .flatMap(isValidUser -> {
+                    if (!isValidUser) {
+                        return Mono.error(new RuntimeException("Invalid User: " + request.getUserId()));
+                    }
+                    // Mongo and RabbitMQ clients block, so keep them off the reactive threads
+                    return Mono.fromCallable(() -> saveWithPendingEvent(request))
+                            .subscribeOn(Schedulers.boundedElastic());
+                });
+    }
+
+    private ActivityResponse saveWithPendingEvent(ActivityRequest request) {
+        Activity activity = toActivity(request, request.getUserId());
+
+        // The pending-event flag is stored with the activity; OutboxRelay publishes it for AI Processing
+        Activity savedActivity = activityRepository.save(activity);
+        updateStats(savedActivity.getUserId(), () -> userStatsService.recordActivity(savedActivity));
+
+        return mapToResponse(savedActivity);
+    }
+
+    public Mono<ActivityBatchResponse> trackActivities(String userId, List<ActivityRequest> requests) {
+        if (requests.size() > maxBatchSize) {
+            return Mono.error(new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "Batch too large: " + requests.size() + " activities, max is " + maxBatchSize));
+        }
+        return userValidationService.validateUser(userId)
+                .flatMap(isValidUser -> {
+                    if (!isValidUser) {
+                        return Mono.error(new RuntimeException("Invalid User: " + userId));
+                    }
+                    return Mono.fromCallable(() -> saveBatchWithPendingEvents(userId, requests))
+                            .subscribeOn(Schedulers.boundedElastic());
+                });
+    }
+
+    private ActivityBatchResponse saveBatchWithPendingEvents(String userId, List<ActivityRequest> requests) {
+        // Ids and audit dates are assigned up front so the inserted documents can be returned without re-reading them
+        LocalDateTime now = LocalDateTime.now();
+        List<Activity> activities = new ArrayList<>(requests.size());
+        for (ActivityRequest request : requests) {
+            Activity activity = toActivity(request, userId);
+            activity.setId(new ObjectId().toHexString());
+            activity.setCreatedAt(now);
+            activity.setUpdatedAt(now);
+            activities.add(activity);
+        }
+
+        List<ActivityBatchError> errors = new ArrayList<>();
+        Set<Integer> failedIndexes = new HashSet<>();
+        if (!activities.isEmpty()) {
+            try {
+                mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Activity.class)
+                        .insert(activities)
+                        .execute();
+            } catch (BulkOperationException e) {
+                e.getErrors().forEach(error -> {
+                    failedIndexes.add(error.getIndex());
+                    errors.add(new ActivityBatchError(error.getIndex(), error.getMessage()));
+                });
+            }
+        }
 
-        boolean isValidUser = userValidationService.validateUser(request.getUserId());
-        if (!isValidUser) {
-            throw new RuntimeException("Invalid User: " + request.getUserId());
+        List<Activity> savedActivities = new ArrayList<>();
+        for (int i = 0; i < activities.size(); i++) {
+            if (!failedIndexes.contains(i)) {
+                savedActivities.add(activities.get(i));
+            }
         }
+        updateStats(userId, () -> userStatsService.recordActivities(savedActivities));
 
-        Activity activity = Activity.builder()
-                .userId(request.getUserId())
+        log.info("Stored {} of {} activities in batch for user: {}", savedActivities.size(), requests.size(), userId);
+        List<ActivityResponse> created = savedActivities.stream()
+                .map(this::mapToResponse)
+                .collect(Collectors.toList());
+        return new ActivityBatchResponse(created, errors);
+    }
+
+    private Activity toActivity(ActivityRequest request, String userId) {
+        return Activity.builder()
+                .userId(userId)
                 .type(request.getType())
                 .duration(request.getDuration())
                 .caloriesBurned(request.getCaloriesBurned())
                 .startTime(request.getStartTime())
                 .additionalMetrics(request.getAdditionalMetrics())
+                .eventPending(true)
                 .build();
-
-        Activity savedActivity = activityRepository.save(activity);
-
-        // Publish to RabbitMQ for AI Processing
-        try {
-            rabbitTemplate.convertAndSend(exchange, routingKey, savedActivity);
-        } catch(Exception e) {
-            log.error("Failed to publish activity to RabbitMQ : ", e);
-        }
-
-        return mapToResponse(savedActivity);
     }
 
     private ActivityResponse mapToResponse(Activity activity){
@@ -93,13 +184,39 @@ public class ActivityService {
             throw new RuntimeException("User not authorized to update this activity");
         }
 
-        existingActivity.setType(request.getType());
-        existingActivity.setDuration(request.getDuration());
-        existingActivity.setCaloriesBurned(request.getCaloriesBurned());
-        existingActivity.setStartTime(request.getStartTime());
-        existingActivity.setAdditionalMetrics(request.getAdditionalMetrics());
+        // Only the edited fields are written, so outbox state changed by OutboxRelay since the read
+        // is not overwritten; the returned pre-image is what the stats rollup has counted
+        LocalDateTime changedAt = LocalDateTime.now();
+        Activity previousActivity = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("id").is(activityId).and("userId").is(existingActivity.getUserId())),
+                new Update()
+                        .set("type", request.getType())
+                        .set("duration", request.getDuration())
+                        .set("caloriesBurned", request.getCaloriesBurned())
+                        .set("startTime", request.getStartTime())
+                        .set("additionalMetrics", request.getAdditionalMetrics())
+                        .set("updatedAt", changedAt)
+                        // Re-flags the outbox row; the event lets the gateway drop the user's cached responses
+                        .set("eventPending", true)
+                        .unset("eventClaim")
+                        .unset("eventLockedUntil"),
+                Activity.class);
+        if (previousActivity == null) {
+            throw new RuntimeException("Activity not found with id: " + activityId);
+        }
 
-        Activity updatedActivity = activityRepository.save(existingActivity);
+        Activity updatedActivity = Activity.builder()
+                .id(previousActivity.getId())
+                .userId(previousActivity.getUserId())
+                .type(request.getType())
+                .duration(request.getDuration())
+                .caloriesBurned(request.getCaloriesBurned())
+                .startTime(request.getStartTime())
+                .additionalMetrics(request.getAdditionalMetrics())
+                .createdAt(previousActivity.getCreatedAt())
+                .updatedAt(changedAt)
+                .build();
+        updateStats(updatedActivity.getUserId(), () -> userStatsService.replaceActivity(previousActivity, updatedActivity, changedAt));
         return mapToResponse(updatedActivity);
     }
 
@@ -111,56 +228,154 @@ public class ActivityService {
             throw new RuntimeException("User not authorized to delete this activity");
         }
 
+        LocalDateTime changedAt = LocalDateTime.now();
+        // Written first so the delete event survives a crash right after the delete
+        mongoTemplate.save(ActivityTombstone.builder()
+                .activityId(activityId)
+                .userId(userId)
+                .deletedAt(changedAt)
+                .build());
         activityRepository.deleteById(activityId);
+        updateStats(userId, () -> userStatsService.removeActivity(activity, changedAt));
     }
 
-    public List<ActivityResponse> getUserActivities(String userId, String activityType, String startDate, String endDate, int page, int size) {
-        List<Activity> activities = activityRepository.findByUserId(userId);
-        
-        // Apply filters if provided
-        if (activityType != null && !activityType.isEmpty()) {
-            activities = activities.stream()
-                    .filter(activity -> activity.getType().toString().equalsIgnoreCase(activityType))
-                    .collect(Collectors.toList());
+    private void updateStats(String userId, Runnable statsUpdate) {
+        try {
+            statsUpdate.run();
+        } catch (Exception e) {
+            log.error("Failed to update user stats rollup, invalidating it for user: {}", userId, e);
+            try {
+                // Reads fall back to the aggregation engine until the buckets are rebuilt, instead of serving drift
+                userStatsService.invalidate(userId);
+            } catch (Exception invalidateError) {
+                log.error("Failed to invalidate user stats rollup for user: {}", userId, invalidateError);
+            }
         }
-        
-        // TODO: Add date filtering logic when startDate and endDate are provided
-        
-        // Apply pagination
-        int start = page * size;
-        int end = Math.min(start + size, activities.size());
-        
-        if (start >= activities.size()) {
+    }
+
+    public void rebuildUserStats(String userId) {
+        userStatsService.rebuild(userId);
+    }
+
+    public List<ActivityResponse> getUserActivities(String userId, String activityType, String startDate, String endDate, int page, int size) {
+        if (isUnknownType(activityType)) {
+            // Unknown type can never match a stored activity
             return List.of();
         }
-        
-        return activities.subList(start, end).stream()
+        ActivityType type = parseType(activityType);
+
+        Range<LocalDateTime> startTimeRange = toStartTimeRange(startDate, endDate);
+        // id breaks startTime ties so offset pages stay stable; the (userId, startTime, _id) index covers it
+        Pageable pageable = PageRequest.of(Math.max(page, 0), Math.max(size, 1),
+                Sort.by(Sort.Direction.DESC, "startTime", "id"));
+
+        List<Activity> activities;
+        if (type != null && startTimeRange != null) {
+            activities = activityRepository.findByUserIdAndTypeAndStartTimeBetween(userId, type, startTimeRange, pageable);
+        } else if (type != null) {
+            activities = activityRepository.findByUserIdAndType(userId, type, pageable);
+        } else if (startTimeRange != null) {
+            activities = activityRepository.findByUserIdAndStartTimeBetween(userId, startTimeRange, pageable);
+        } else {
+            activities = activityRepository.findByUserId(userId, pageable);
+        }
+
+        return activities.stream()
                 .map(this::mapToResponse)
                 .collect(Collectors.toList());
     }
 
-    public Object getUserStats(String userId, String period) {
-        List<Activity> activities = activityRepository.findByUserId(userId);
-        
-        // Calculate basic stats
-        double totalCalories = activities.stream()
-                .mapToDouble(Activity::getCaloriesBurned)
-                .sum();
-        
-        long totalDuration = activities.stream()
-                .mapToLong(Activity::getDuration)
-                .sum();
-        
-        int totalActivities = activities.size();
-        
-        // Create stats object
-        return Map.of(
-            "userId", userId,
-            "totalActivities", totalActivities,
-            "totalCaloriesBurned", totalCalories,
-            "totalDurationMinutes", totalDuration,
-            "averageCaloriesPerActivity", totalActivities > 0 ? totalCalories / totalActivities : 0,
-            "averageDurationPerActivity", totalActivities > 0 ? totalDuration / totalActivities : 0
-        );
+    public ActivityPageResponse getUserActivitiesAfter(String userId, String activityType, String startDate, String endDate, String after, int size) {
+        if (isUnknownType(activityType)) {
+            return new ActivityPageResponse(List.of(), null);
+        }
+        ActivityType type = parseType(activityType);
+        int pageSize = Math.max(size, 1);
+
+        List<Criteria> criteria = new ArrayList<>();
+        criteria.add(Criteria.where("userId").is(userId));
+        if (type != null) {
+            criteria.add(Criteria.where("type").is(type));
+        }
+        if (startDate != null && !startDate.isEmpty()) {
+            criteria.add(Criteria.where("startTime").gte(parseDateTime(startDate, false)));
+        }
+        if (endDate != null && !endDate.isEmpty()) {
+            criteria.add(Criteria.where("startTime").lt(parseDateTime(endDate, true)));
+        }
+        if (after != null && !after.isEmpty()) {
+            criteria.add(ActivityCursor.decode(after).seekAfter());
+        }
+
+        // Fetch one extra row to learn whether another page exists without a count query
+        Query query = new Query(new Criteria().andOperator(criteria))
+                .with(Sort.by(Sort.Direction.DESC, "startTime", "id"))
+                .limit(pageSize + 1);
+        List<Activity> activities = mongoTemplate.find(query, Activity.class);
+
+        String nextCursor = null;
+        if (activities.size() > pageSize) {
+            activities = activities.subList(0, pageSize);
+            Activity last = activities.get(pageSize - 1);
+            nextCursor = new ActivityCursor(last.getStartTime(), last.getId()).encode();
+        }
+
+        List<ActivityResponse> responses = activities.stream()
+                .map(this::mapToResponse)
+                .collect(Collectors.toList());
+        return new ActivityPageResponse(responses, nextCursor);
+    }
+
+    private boolean isUnknownType(String activityType) {
+        if (activityType == null || activityType.isEmpty()) {
+            return false;
+        }
+        try {
+            ActivityType.valueOf(activityType.toUpperCase());
+            return false;
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+    }
+
+    private ActivityType parseType(String activityType) {
+        return activityType == null || activityType.isEmpty() ? null : ActivityType.valueOf(activityType.toUpperCase());
+    }
+
+    private Range<LocalDateTime> toStartTimeRange(String startDate, String endDate) {
+        boolean hasStart = startDate != null && !startDate.isEmpty();
+        boolean hasEnd = endDate != null && !endDate.isEmpty();
+        if (!hasStart && !hasEnd) {
+            return null;
+        }
+
+        Range.Bound<LocalDateTime> lower = hasStart
+                ? Range.Bound.inclusive(parseDateTime(startDate, false))
+                : Range.Bound.unbounded();
+        Range.Bound<LocalDateTime> upper = hasEnd
+                ? Range.Bound.exclusive(parseDateTime(endDate, true))
+                : Range.Bound.unbounded();
+        return Range.of(lower, upper);
+    }
+
+    // Accepts either an ISO date-time or a plain ISO date; a plain end date covers the whole day
+    private LocalDateTime parseDateTime(String value, boolean endOfRange) {
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            try {
+                LocalDate date = LocalDate.parse(value);
+                return endOfRange ? date.plusDays(1).atStartOfDay() : date.atStartOfDay();
+            } catch (DateTimeParseException ex) {
+                throw new RuntimeException("Invalid date: " + value);
+            }
+        }
+    }
+
+    public UserStatsResponse getUserStats(String userId, String period) {
+        if ("aggregation".equalsIgnoreCase(statsEngine)) {
+            return activityStatsAggregationService.getUserStats(userId, period);
+        }
+        return userStatsService.getUserStats(userId, period);
     }
 }
@@ -0,0 +1,120 @@
+package com.fitness.activityservice.service;
+
+import com.fitness.activityservice.dto.ActivityTypeStats;
+import com.fitness.activityservice.dto.UserStatsResponse;
+import com.fitness.activityservice.dto.WeeklyActivityStats;
+import com.fitness.activityservice.model.Activity;
+import com.fitness.activityservice.model.ActivityType;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+
+/**
+ * Computes activity stats server-side with a single $match/$facet aggregation, so only
+ * the totals, per-type breakdown and weekly series leave MongoDB.
+ */
+@Service
+@RequiredArgsConstructor
+public class ActivityStatsAggregationService {
+
+    private final MongoTemplate mongoTemplate;
+
+    public UserStatsResponse getUserStats(String userId, String period) {
+        Criteria criteria = Criteria.where("userId").is(userId);
+        Integer days = UserStatsService.parsePeriodDays(period);
+        if (days != null) {
+            criteria.and("startTime").gte(LocalDate.now().minusDays(days - 1).atStartOfDay());
+        }
+
+        Aggregation aggregation = newAggregation(
+                match(criteria),
+                facet(
+                        group()
+                                .count().as("activityCount")
+                                .sum("caloriesBurned").as("totalCalories")
+                                .sum("duration").as("totalDuration")
+                                .avg("caloriesBurned").as("averageCalories")
+                                .avg("duration").as("averageDuration")
+                ).as("totals")
+                .and(
+                        group("type")
+                                .count().as("activityCount")
+                                .sum("caloriesBurned").as("totalCalories")
+                                .sum("duration").as("totalDuration"),
+                        sort(Sort.Direction.DESC, "activityCount")
+                ).as("byType")
+                .and(
+                        match(Criteria.where("startTime").ne(null)),
+                        project("caloriesBurned", "duration")
+                                .and(DateOperators.dateOf("startTime").isoWeekYear()).as("year")
+                                .and(DateOperators.dateOf("startTime").isoWeek()).as("week"),
+                        group("year", "week")
+                                .count().as("activityCount")
+                                .sum("caloriesBurned").as("totalCalories")
+                                .sum("duration").as("totalDuration"),
+                        sort(Sort.Direction.ASC, "year", "week")
+                ).as("weekly")
+        );
+
+        Document result = mongoTemplate.aggregate(aggregation, Activity.class, Document.class)
+                .getUniqueMappedResult();
+
+        List<Document> totalsList = result != null ? result.getList("totals", Document.class) : List.of();
+        Document totals = totalsList.isEmpty() ? new Document() : totalsList.get(0);
+
+        return UserStatsResponse.builder()
+                .userId(userId)
+                .period(period != null ? period : "all")
+                .totalActivities(longValue(totals.get("activityCount")))
+                .totalCaloriesBurned(doubleValue(totals.get("totalCalories")))
+                .totalDurationMinutes(longValue(totals.get("totalDuration")))
+                .averageCaloriesPerActivity(doubleValue(totals.get("averageCalories")))
+                .averageDurationPerActivity(doubleValue(totals.get("averageDuration")))
+                .activitiesByType(result != null
+                        ? result.getList("byType", Document.class).stream().map(this::toTypeStats).collect(Collectors.toList())
+                        : List.of())
+                .weeklySeries(result != null
+                        ? result.getList("weekly", Document.class).stream().map(this::toWeeklyStats).collect(Collectors.toList())
+                        : List.of())
+                .build();
+    }
+
+    // Activities without a type are reported as OTHER, as the rollup does
+    private ActivityTypeStats toTypeStats(Document document) {
+        return new ActivityTypeStats(
+                Objects.toString(document.get("_id"), ActivityType.OTHER.name()),
+                longValue(document.get("activityCount")),
+                doubleValue(document.get("totalCalories")),
+                longValue(document.get("totalDuration")));
+    }
+
+    private WeeklyActivityStats toWeeklyStats(Document document) {
+        Document week = document.get("_id", Document.class);
+        return new WeeklyActivityStats(
+                (int) longValue(week.get("year")),
+                (int) longValue(week.get("week")),
+                longValue(document.get("activityCount")),
+                doubleValue(document.get("totalCalories")),
+                longValue(document.get("totalDuration")));
+    }
+
+    private long longValue(Object value) {
+        return value instanceof Number number ? number.longValue() : 0L;
+    }
+
+    private double doubleValue(Object value) {
+        return value instanceof Number number ? number.doubleValue() : 0.0;
+    }
+}
@@ -0,0 +1,186 @@
+package com.fitness.activityservice.service;
+
+import com.fitness.activityservice.model.Activity;
+import com.fitness.activityservice.model.ActivityTombstone;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Relays activities flagged with a pending event to RabbitMQ in batches. Each replica first
+ * claims a batch with a lease, so replicas never publish the same rows concurrently, and the
+ * flag is only cleared after the broker confirms the whole batch (at-least-once delivery).
+ * A replica that dies mid-batch leaves its claim to expire and be picked up again.
+ * Deletes are relayed the same way from {@link ActivityTombstone} rows.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class OutboxRelay {
+
+    private final MongoTemplate mongoTemplate;
+    private final RabbitTemplate rabbitTemplate;
+
+    @Value("${rabbitmq.exchange.name}")
+    private String exchange;
+
+    @Value("${rabbitmq.routing.key}")
+    private String routingKey;
+
+    @Value("${rabbitmq.routing.activity-deleted-key}")
+    private String activityDeletedKey;
+
+    @Value("${activity.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${activity.outbox.confirm-timeout-ms:5000}")
+    private long confirmTimeoutMs;
+
+    @Value("${activity.outbox.lease-ms:30000}")
+    private long leaseMs;
+
+    @Scheduled(fixedDelayString = "${activity.outbox.relay-interval-ms:500}")
+    public void relay() {
+        int relayed;
+        do {
+            relayed = relayBatch();
+        } while (relayed == batchSize);
+
+        do {
+            relayed = relayTombstoneBatch();
+        } while (relayed == batchSize);
+    }
+
+    private int relayBatch() {
+        String claim = UUID.randomUUID().toString();
+        List<Activity> activities = claimBatch(claim);
+        if (activities.isEmpty()) {
+            return 0;
+        }
+        try {
+            rabbitTemplate.invoke(operations -> {
+                activities.forEach(activity -> operations.convertAndSend(exchange, routingKey, activity));
+                operations.waitForConfirmsOrDie(confirmTimeoutMs);
+                return null;
+            });
+        } catch (Exception e) {
+            log.error("Failed to relay {} activity events to RabbitMQ, will retry after the lease expires : ",
+                    activities.size(), e);
+            return 0;
+        }
+
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("eventClaim").is(claim)),
+                new Update().unset("eventPending").unset("eventClaim").unset("eventLockedUntil"),
+                Activity.class);
+        log.debug("Relayed {} activity events to RabbitMQ", activities.size());
+        return activities.size();
+    }
+
+    private int relayTombstoneBatch() {
+        String claim = UUID.randomUUID().toString();
+        List<ActivityTombstone> tombstones = claimTombstones(claim);
+        if (tombstones.isEmpty()) {
+            return 0;
+        }
+
+        // A tombstone whose activity still exists belongs to a delete that has not landed (or failed)
+        Query existing = Query.query(Criteria.where("id").in(tombstones.stream().map(ActivityTombstone::getActivityId).toList()));
+        existing.fields().include("id");
+        Set<String> existingIds = mongoTemplate.find(existing, Activity.class).stream()
+                .map(Activity::getId)
+                .collect(Collectors.toSet());
+        List<ActivityTombstone> deleted = tombstones.stream()
+                .filter(tombstone -> !existingIds.contains(tombstone.getActivityId()))
+                .toList();
+
+        if (!deleted.isEmpty()) {
+            try {
+                rabbitTemplate.invoke(operations -> {
+                    deleted.forEach(tombstone -> operations.convertAndSend(exchange, activityDeletedKey, tombstone));
+                    operations.waitForConfirmsOrDie(confirmTimeoutMs);
+                    return null;
+                });
+            } catch (Exception e) {
+                log.error("Failed to relay {} activity delete events to RabbitMQ, will retry after the lease expires : ",
+                        deleted.size(), e);
+                return 0;
+            }
+            mongoTemplate.remove(Query.query(Criteria.where("activityId")
+                    .in(deleted.stream().map(ActivityTombstone::getActivityId).toList())), ActivityTombstone.class);
+        }
+
+        LocalDateTime abandonedBefore = LocalDateTime.now().minusNanos(leaseMs * 1_000_000);
+        mongoTemplate.remove(Query.query(Criteria.where("eventClaim").is(claim).and("deletedAt").lt(abandonedBefore)),
+                ActivityTombstone.class);
+        mongoTemplate.updateMulti(Query.query(Criteria.where("eventClaim").is(claim)),
+                new Update().unset("eventClaim").unset("eventLockedUntil"),
+                ActivityTombstone.class);
+        log.debug("Relayed {} activity delete events to RabbitMQ", deleted.size());
+        // Tombstones still waiting for their delete are released, so they must not keep the loop going
+        return deleted.size();
+    }
+
+    // Picks candidate ids, then claims only those still unclaimed (or whose lease ran out)
+    private List<Activity> claimBatch(String claim) {
+        LocalDateTime now = LocalDateTime.now();
+        Criteria claimable = Criteria.where("eventPending").is(true).orOperator(
+                Criteria.where("eventLockedUntil").is(null),
+                Criteria.where("eventLockedUntil").lt(now));
+
+        Query candidates = Query.query(claimable)
+                .with(Sort.by(Sort.Direction.ASC, "createdAt"))
+                .limit(batchSize);
+        candidates.fields().include("id");
+        List<String> ids = mongoTemplate.find(candidates, Activity.class).stream()
+                .map(Activity::getId)
+                .toList();
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("id").in(ids).andOperator(claimable)),
+                new Update().set("eventClaim", claim).set("eventLockedUntil", now.plusNanos(leaseMs * 1_000_000)),
+                Activity.class);
+        return mongoTemplate.find(Query.query(Criteria.where("eventClaim").is(claim)), Activity.class);
+    }
+
+    private List<ActivityTombstone> claimTombstones(String claim) {
+        LocalDateTime now = LocalDateTime.now();
+        Criteria claimable = new Criteria().orOperator(
+                Criteria.where("eventLockedUntil").is(null),
+                Criteria.where("eventLockedUntil").lt(now));
+
+        Query candidates = Query.query(claimable)
+                .with(Sort.by(Sort.Direction.ASC, "deletedAt"))
+                .limit(batchSize);
+        candidates.fields().include("activityId");
+        List<String> ids = mongoTemplate.find(candidates, ActivityTombstone.class).stream()
+                .map(ActivityTombstone::getActivityId)
+                .toList();
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("activityId").in(ids).andOperator(claimable)),
+                new Update().set("eventClaim", claim).set("eventLockedUntil", now.plusNanos(leaseMs * 1_000_000)),
+                ActivityTombstone.class);
+        return mongoTemplate.find(Query.query(Criteria.where("eventClaim").is(claim)), ActivityTombstone.class);
+    }
+}
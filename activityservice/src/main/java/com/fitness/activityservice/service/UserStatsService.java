@@ -0,0 +1,482 @@
+package com.fitness.activityservice.service;
+
+import com.fitness.activityservice.UserStatsRepository;
+import com.fitness.activityservice.dto.ActivityTypeStats;
+import com.fitness.activityservice.dto.UserStatsResponse;
+import com.fitness.activityservice.dto.WeeklyActivityStats;
+import com.fitness.activityservice.model.Activity;
+import com.fitness.activityservice.model.ActivityType;
+import com.fitness.activityservice.model.StatsGranularity;
+import com.fitness.activityservice.model.StatsRollupStatus;
+import com.fitness.activityservice.model.StatsTotals;
+import com.fitness.activityservice.model.UserStats;
+import com.fitness.activityservice.model.UserStatsState;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.IsoFields;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+
+/**
+ * Serves activity stats from per-user day/week/month buckets maintained with $inc.
+ *
+ * A user's buckets are trusted only while their {@link UserStatsState} is READY. Rebuilds run
+ * in the background: a pass claims PENDING users, takes the claim time as the watermark, waits
+ * out writes that started before it, and recomputes the buckets with a $group over activities
+ * created before the watermark. Increments for activities the rebuild already saw are skipped.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserStatsService {
+
+    private final MongoTemplate mongoTemplate;
+    private final UserStatsRepository userStatsRepository;
+    private final ActivityStatsAggregationService activityStatsAggregationService;
+
+    @Value("${activity.stats.rebuild.lease-ms:60000}")
+    private long rebuildLeaseMs;
+
+    // Upper bound on how long an activity write takes to become visible after it starts
+    @Value("${activity.stats.rebuild.grace-ms:1000}")
+    private long rebuildGraceMs;
+
+    @Value("${activity.stats.rebuild.batch-size:50}")
+    private int rebuildBatchSize;
+
+    public void recordActivity(Activity activity) {
+        recordActivities(List.of(activity));
+    }
+
+    public void recordActivities(List<Activity> activities) {
+        activities.stream()
+                .collect(Collectors.groupingBy(Activity::getUserId))
+                .forEach((userId, userActivities) -> {
+                    UserStatsState state = readyState(userId);
+                    if (state == null) {
+                        markDirty(userId);
+                        return;
+                    }
+                    // The rebuild counted everything created before its watermark
+                    List<Activity> unseen = userActivities.stream()
+                            .filter(activity -> activity.getCreatedAt() == null
+                                    || !activity.getCreatedAt().isBefore(state.getWatermark()))
+                            .toList();
+                    if (!unseen.isEmpty()) {
+                        applyIncrements(operations -> unseen.forEach(activity -> addIncrements(operations, activity, 1)));
+                    }
+                });
+    }
+
+    /**
+     * @param changedAt taken before the activity was rewritten
+     */
+    public void replaceActivity(Activity previous, Activity current, LocalDateTime changedAt) {
+        applyChange(current.getUserId(), changedAt, operations -> {
+            addIncrements(operations, previous, -1);
+            addIncrements(operations, current, 1);
+        });
+    }
+
+    /**
+     * @param changedAt taken before the activity was deleted
+     */
+    public void removeActivity(Activity activity, LocalDateTime changedAt) {
+        applyChange(activity.getUserId(), changedAt, operations -> addIncrements(operations, activity, -1));
+    }
+
+    /**
+     * Schedules a recompute of the user's buckets from the raw activities, e.g. after drift.
+     */
+    public void rebuild(String userId) {
+        invalidate(userId);
+    }
+
+    /**
+     * Marks a user's rollup as untrustworthy; reads fall back to the aggregation engine until
+     * the next background pass has rebuilt it.
+     */
+    public void invalidate(String userId) {
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("userId").is(userId).and("status").is(StatsRollupStatus.READY)),
+                new Update().set("status", StatsRollupStatus.PENDING),
+                UserStatsState.class);
+        markDirty(userId);
+    }
+
+    public UserStatsResponse getUserStats(String userId, String period) {
+        if (readyState(userId) == null) {
+            mongoTemplate.upsert(
+                    Query.query(Criteria.where("userId").is(userId)),
+                    new Update().setOnInsert("status", StatsRollupStatus.PENDING),
+                    UserStatsState.class);
+            return activityStatsAggregationService.getUserStats(userId, period);
+        }
+
+        Integer days = parsePeriodDays(period);
+        List<UserStats> buckets;
+        List<UserStats> weeklyBuckets;
+        if (days == null) {
+            buckets = userStatsRepository.findByUserIdAndGranularity(userId, StatsGranularity.MONTH);
+            weeklyBuckets = userStatsRepository.findByUserIdAndGranularity(userId, StatsGranularity.WEEK);
+        } else {
+            LocalDate end = LocalDate.now().plusDays(1);
+            buckets = userStatsRepository.findAllById(coveringBucketIds(userId, end.minusDays(days), end));
+            weeklyBuckets = userStatsRepository.findAllById(weeklyBucketIds(userId, end.minusDays(days), end));
+        }
+        return toResponse(userId, period, buckets, weeklyBuckets);
+    }
+
+    /**
+     * Covers [from, to) with the fewest buckets: whole months where they fit, then whole
+     * Monday-based weeks, then single days at the ragged edges.
+     */
+    static List<String> coveringBucketIds(String userId, LocalDate from, LocalDate to) {
+        List<String> ids = new ArrayList<>();
+        LocalDate cursor = from;
+        while (cursor.isBefore(to)) {
+            StatsGranularity granularity = StatsGranularity.DAY;
+            if (StatsGranularity.MONTH.bucketStart(cursor).equals(cursor)
+                    && !StatsGranularity.MONTH.nextBucketStart(cursor).isAfter(to)) {
+                granularity = StatsGranularity.MONTH;
+            } else if (StatsGranularity.WEEK.bucketStart(cursor).equals(cursor)
+                    && !StatsGranularity.WEEK.nextBucketStart(cursor).isAfter(to)) {
+                granularity = StatsGranularity.WEEK;
+            }
+            ids.add(UserStats.bucketId(userId, granularity, cursor));
+            cursor = granularity.nextBucketStart(cursor);
+        }
+        return ids;
+    }
+
+    /**
+     * Buckets for a weekly series over [from, to): day buckets for the partial week the range
+     * starts in, then whole week buckets. The last week may extend past to.
+     */
+    static List<String> weeklyBucketIds(String userId, LocalDate from, LocalDate to) {
+        List<String> ids = new ArrayList<>();
+        LocalDate cursor = from;
+        while (cursor.isBefore(to)) {
+            StatsGranularity granularity = StatsGranularity.WEEK.bucketStart(cursor).equals(cursor)
+                    ? StatsGranularity.WEEK
+                    : StatsGranularity.DAY;
+            ids.add(UserStats.bucketId(userId, granularity, cursor));
+            cursor = granularity.nextBucketStart(cursor);
+        }
+        return ids;
+    }
+
+    // Accepts a day count ("30") or a named period; null or "all" means the whole history
+    static Integer parsePeriodDays(String period) {
+        if (period == null || period.isEmpty() || period.equalsIgnoreCase("all")) {
+            return null;
+        }
+        return switch (period.toLowerCase()) {
+            case "day" -> 1;
+            case "week" -> 7;
+            case "month" -> 30;
+            case "year" -> 365;
+            default -> {
+                try {
+                    yield Math.max(Integer.parseInt(period), 1);
+                } catch (NumberFormatException e) {
+                    throw new RuntimeException("Invalid period: " + period);
+                }
+            }
+        };
+    }
+
+    /**
+     * Claims a batch of users whose rollup needs rebuilding and rebuilds them. Claims are
+     * atomic with a lease, so each user is rebuilt by one instance at a time.
+     */
+    @Scheduled(fixedDelayString = "${activity.stats.rebuild.interval-ms:1000}")
+    public void rebuildPending() {
+        LocalDateTime now = LocalDateTime.now();
+        List<UserStatsState> candidates = mongoTemplate.find(
+                Query.query(claimable(now)).limit(rebuildBatchSize), UserStatsState.class);
+
+        Map<String, UserStatsState> claimed = new LinkedHashMap<>();
+        for (UserStatsState candidate : candidates) {
+            UserStatsState state = claim(candidate.getUserId(), now);
+            if (state != null) {
+                claimed.put(state.getUserId(), state);
+            }
+        }
+        if (claimed.isEmpty()) {
+            return;
+        }
+
+        // Writes that started before a claim's watermark are visible once the grace period has passed
+        try {
+            Thread.sleep(rebuildGraceMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        claimed.values().forEach(state -> {
+            try {
+                rebuild(state);
+            } catch (Exception e) {
+                // The lease runs out and a later pass claims the user again
+                log.error("Failed to rebuild stats rollup for user: {}", state.getUserId(), e);
+            }
+        });
+    }
+
+    private Criteria claimable(LocalDateTime now) {
+        return new Criteria().orOperator(
+                Criteria.where("status").is(StatsRollupStatus.PENDING),
+                Criteria.where("status").is(StatsRollupStatus.BUILDING).and("leaseUntil").lt(now));
+    }
+
+    private UserStatsState claim(String userId, LocalDateTime now) {
+        return mongoTemplate.findAndModify(
+                Query.query(new Criteria().andOperator(Criteria.where("userId").is(userId), claimable(now))),
+                new Update().set("status", StatsRollupStatus.BUILDING)
+                        .set("dirty", false)
+                        .set("claim", UUID.randomUUID().toString())
+                        .set("watermark", now)
+                        .set("leaseUntil", now.plusNanos(rebuildLeaseMs * 1_000_000)),
+                FindAndModifyOptions.options().returnNew(true),
+                UserStatsState.class);
+    }
+
+    private void rebuild(UserStatsState state) {
+        String userId = state.getUserId();
+        List<UserStats> buckets = computeBuckets(userId, state.getWatermark());
+
+        // Replaces the user's buckets wholesale, so a rebuild is idempotent unlike $inc
+        mongoTemplate.remove(Query.query(Criteria.where("userId").is(userId)), UserStats.class);
+        if (!buckets.isEmpty()) {
+            mongoTemplate.insertAll(buckets);
+        }
+
+        Query owned = Query.query(Criteria.where("userId").is(userId).and("claim").is(state.getClaim()));
+        UserStatsState ready = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("userId").is(userId).and("claim").is(state.getClaim()).and("dirty").is(false)),
+                new Update().set("status", StatsRollupStatus.READY)
+                        .set("builtAt", LocalDateTime.now())
+                        .unset("claim")
+                        .unset("leaseUntil"),
+                UserStatsState.class);
+        if (ready == null) {
+            // A write saw the rollup mid-rebuild; hand it back for the next pass
+            mongoTemplate.updateFirst(owned,
+                    new Update().set("status", StatsRollupStatus.PENDING).unset("claim").unset("leaseUntil"),
+                    UserStatsState.class);
+            return;
+        }
+        log.info("Rebuilt stats rollup for user: {} into {} buckets", userId, buckets.size());
+    }
+
+    /**
+     * Totals per (day, type) are computed by MongoDB; only those rows are folded into the
+     * day, week and month buckets here.
+     */
+    private List<UserStats> computeBuckets(String userId, LocalDateTime watermark) {
+        Aggregation aggregation = newAggregation(
+                match(Criteria.where("userId").is(userId).orOperator(
+                        Criteria.where("createdAt").lt(watermark),
+                        Criteria.where("createdAt").exists(false))),
+                project("caloriesBurned", "duration")
+                        .and(ConditionalOperators.ifNull("type").then(ActivityType.OTHER.name())).as("type")
+                        .and(DateOperators.dateOf(ConditionalOperators.ifNull("startTime").thenValueOf("createdAt"))
+                                .withTimezone(DateOperators.Timezone.valueOf(ZoneId.systemDefault().getId()))
+                                .toString("%Y-%m-%d")).as("day"),
+                group("day", "type")
+                        .count().as("activityCount")
+                        .sum("caloriesBurned").as("totalCalories")
+                        .sum("duration").as("totalDuration")
+        );
+
+        Map<String, UserStats> buckets = new HashMap<>();
+        for (Document row : mongoTemplate.aggregate(aggregation, Activity.class, Document.class)) {
+            Document key = row.get("_id", Document.class);
+            String day = key.getString("day");
+            accumulate(buckets, userId,
+                    day != null ? LocalDate.parse(day) : LocalDate.now(),
+                    key.getString("type"),
+                    longValue(row.get("activityCount")),
+                    longValue(row.get("totalCalories")),
+                    longValue(row.get("totalDuration")));
+        }
+        return new ArrayList<>(buckets.values());
+    }
+
+    private void accumulate(Map<String, UserStats> buckets, String userId, LocalDate date, String type,
+                            long count, long calories, long duration) {
+        for (StatsGranularity granularity : StatsGranularity.values()) {
+            LocalDate bucketStart = granularity.bucketStart(date);
+            UserStats bucket = buckets.computeIfAbsent(UserStats.bucketId(userId, granularity, bucketStart),
+                    id -> UserStats.builder()
+                            .id(id)
+                            .userId(userId)
+                            .granularity(granularity)
+                            .bucketStart(bucketStart)
+                            .byType(new HashMap<>())
+                            .build());
+            bucket.setActivityCount(bucket.getActivityCount() + count);
+            bucket.setTotalCalories(bucket.getTotalCalories() + calories);
+            bucket.setTotalDuration(bucket.getTotalDuration() + duration);
+
+            StatsTotals totals = bucket.getByType().computeIfAbsent(type, key -> new StatsTotals());
+            totals.setActivityCount(totals.getActivityCount() + count);
+            totals.setTotalCalories(totals.getTotalCalories() + calories);
+            totals.setTotalDuration(totals.getTotalDuration() + duration);
+        }
+    }
+
+    private UserStatsState readyState(String userId) {
+        UserStatsState state = mongoTemplate.findById(userId, UserStatsState.class);
+        return state != null && state.getStatus() == StatsRollupStatus.READY ? state : null;
+    }
+
+    // Makes a rebuild that is in progress (or about to be claimed) start over and reread the activities
+    private void markDirty(String userId) {
+        mongoTemplate.upsert(
+                Query.query(Criteria.where("userId").is(userId)),
+                new Update().set("dirty", true).setOnInsert("status", StatsRollupStatus.PENDING),
+                UserStatsState.class);
+    }
+
+    /**
+     * Updates and deletes rewrite activities the watermark cannot classify by createdAt. A change
+     * that started before the watermark was visible to the rebuild's read, one that started after
+     * the rollup went READY was not; anything in between is ambiguous and schedules a rebuild.
+     */
+    private void applyChange(String userId, LocalDateTime changedAt, Consumer<BulkOperations> increments) {
+        UserStatsState state = readyState(userId);
+        if (state == null) {
+            markDirty(userId);
+        } else if (!changedAt.isBefore(state.getBuiltAt())) {
+            applyIncrements(increments);
+        } else if (!changedAt.isBefore(state.getWatermark())) {
+            invalidate(userId);
+        }
+    }
+
+    private void applyIncrements(Consumer<BulkOperations> increments) {
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, UserStats.class);
+        increments.accept(operations);
+        operations.execute();
+    }
+
+    private void addIncrements(BulkOperations operations, Activity activity, int sign) {
+        LocalDate date = activityDate(activity);
+        String type = (activity.getType() != null ? activity.getType() : ActivityType.OTHER).name();
+        long calories = activity.getCaloriesBurned() != null ? activity.getCaloriesBurned() : 0;
+        long duration = activity.getDuration() != null ? activity.getDuration() : 0;
+
+        for (StatsGranularity granularity : StatsGranularity.values()) {
+            LocalDate bucketStart = granularity.bucketStart(date);
+            Query query = Query.query(Criteria.where("id")
+                    .is(UserStats.bucketId(activity.getUserId(), granularity, bucketStart)));
+            Update update = new Update()
+                    .setOnInsert("userId", activity.getUserId())
+                    .setOnInsert("granularity", granularity)
+                    .setOnInsert("bucketStart", bucketStart)
+                    .inc("activityCount", sign)
+                    .inc("totalCalories", sign * calories)
+                    .inc("totalDuration", sign * duration)
+                    .inc("byType." + type + ".activityCount", sign)
+                    .inc("byType." + type + ".totalCalories", sign * calories)
+                    .inc("byType." + type + ".totalDuration", sign * duration);
+            operations.upsert(query, update);
+        }
+    }
+
+    private LocalDate activityDate(Activity activity) {
+        if (activity.getStartTime() != null) {
+            return activity.getStartTime().toLocalDate();
+        }
+        return activity.getCreatedAt() != null ? activity.getCreatedAt().toLocalDate() : LocalDate.now();
+    }
+
+    private UserStatsResponse toResponse(String userId, String period, List<UserStats> buckets,
+                                         List<UserStats> weeklyBuckets) {
+        long totalActivities = 0;
+        long totalCalories = 0;
+        long totalDuration = 0;
+        Map<String, StatsTotals> byType = new HashMap<>();
+        for (UserStats bucket : buckets) {
+            totalActivities += bucket.getActivityCount();
+            totalCalories += bucket.getTotalCalories();
+            totalDuration += bucket.getTotalDuration();
+            if (bucket.getByType() != null) {
+                bucket.getByType().forEach((type, totals) -> addTotals(byType.computeIfAbsent(type, key -> new StatsTotals()), totals));
+            }
+        }
+
+        // Day buckets of a partial first week fold into that week's point
+        Map<LocalDate, StatsTotals> weeks = new HashMap<>();
+        for (UserStats bucket : weeklyBuckets) {
+            StatsTotals week = weeks.computeIfAbsent(StatsGranularity.WEEK.bucketStart(bucket.getBucketStart()), key -> new StatsTotals());
+            addTotals(week, new StatsTotals(bucket.getActivityCount(), bucket.getTotalCalories(), bucket.getTotalDuration()));
+        }
+
+        return UserStatsResponse.builder()
+                .userId(userId)
+                .period(period != null ? period : "all")
+                .totalActivities(totalActivities)
+                .totalCaloriesBurned(totalCalories)
+                .totalDurationMinutes(totalDuration)
+                .averageCaloriesPerActivity(totalActivities > 0 ? (double) totalCalories / totalActivities : 0)
+                .averageDurationPerActivity(totalActivities > 0 ? (double) totalDuration / totalActivities : 0)
+                .activitiesByType(byType.entrySet().stream()
+                        .filter(entry -> entry.getValue().getActivityCount() > 0)
+                        .sorted(Comparator.comparingLong((Map.Entry<String, StatsTotals> entry) -> entry.getValue().getActivityCount()).reversed())
+                        .map(entry -> new ActivityTypeStats(entry.getKey(), entry.getValue().getActivityCount(),
+                                entry.getValue().getTotalCalories(), entry.getValue().getTotalDuration()))
+                        .collect(Collectors.toList()))
+                .weeklySeries(weeks.entrySet().stream()
+                        .filter(entry -> entry.getValue().getActivityCount() > 0)
+                        .sorted(Map.Entry.comparingByKey())
+                        .map(entry -> new WeeklyActivityStats(
+                                entry.getKey().get(IsoFields.WEEK_BASED_YEAR),
+                                entry.getKey().get(IsoFields.WEEK_OF_WEEK_BASED_YEAR),
+                                entry.getValue().getActivityCount(),
+                                entry.getValue().getTotalCalories(),
+                                entry.getValue().getTotalDuration()))
+                        .collect(Collectors.toList()))
+                .build();
+    }
+
+    private void addTotals(StatsTotals target, StatsTotals source) {
+        target.setActivityCount(target.getActivityCount() + source.getActivityCount());
+        target.setTotalCalories(target.getTotalCalories() + source.getTotalCalories());
+        target.setTotalDuration(target.getTotalDuration() + source.getTotalDuration());
+    }
+
+    private long longValue(Object value) {
+        return value instanceof Number number ? number.longValue() : 0L;
+    }
+}
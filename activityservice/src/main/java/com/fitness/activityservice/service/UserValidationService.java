@@ -1,32 +1,60 @@
 package com.fitness.activityservice.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class UserValidationService {
     private final WebClient userServiceWebClient;
+    private final Cache<String, Boolean> userValidationCache;
+    private final CircuitBreaker userServiceCircuitBreaker;
+    private final Bulkhead userServiceBulkhead;
 
-    public boolean validateUser(String userId) {
-        log.info("Calling User Validation API for userId: {}", userId);
-        try{
-            return userServiceWebClient.get()
-                    .uri("/api/users/{userId}/validate", userId)
-                    .retrieve()
-                    .bodyToMono(Boolean.class)
-                    .block();
-        } catch (WebClientResponseException e) {
-            if (e.getStatusCode() == HttpStatus.NOT_FOUND)
-                throw new RuntimeException("User Not Found: " + userId);
-            else if (e.getStatusCode() == HttpStatus.BAD_REQUEST)
-                throw new RuntimeException("Invalid Request: " + userId);
+    public Mono<Boolean> validateUser(String userId) {
+        Boolean cached = userValidationCache.getIfPresent(userId);
+        if (cached != null) {
+            return Mono.just(cached);
         }
-        return false;
+
+        log.info("Calling User Validation API for userId: {}", userId);
+        return userServiceWebClient.get()
+                .uri("/api/users/{userId}/validate", userId)
+                .retrieve()
+                .bodyToMono(Boolean.class)
+                .transformDeferred(BulkheadOperator.of(userServiceBulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(userServiceCircuitBreaker))
+                .map(Boolean.TRUE::equals)
+                .defaultIfEmpty(false)
+                .doOnNext(valid -> userValidationCache.put(userId, valid))
+                .onErrorResume(WebClientResponseException.class, e -> {
+                    if (e.getStatusCode() == HttpStatus.NOT_FOUND) {
+                        userValidationCache.put(userId, false);
+                        return Mono.error(new RuntimeException("User Not Found: " + userId));
+                    }
+                    else if (e.getStatusCode() == HttpStatus.BAD_REQUEST)
+                        return Mono.error(new RuntimeException("Invalid Request: " + userId));
+                    return Mono.just(false);
+                })
+                // Open breaker, full bulkhead or a timeout: fail fast without caching an answer
+                .onErrorMap(e -> e instanceof CallNotPermittedException || e instanceof BulkheadFullException
+                                || e instanceof WebClientRequestException,
+                        e -> new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                                "User service unavailable: " + e.getMessage(), e));
     }
 }
@@ -0,0 +1,39 @@
+package com.fitness.activityservice.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StatsGranularityTest {
+
+    @Test
+    void dayBucketIsTheDayItself() {
+        LocalDate date = LocalDate.of(2024, 3, 6);
+
+        assertEquals(date, StatsGranularity.DAY.bucketStart(date));
+        assertEquals(LocalDate.of(2024, 3, 7), StatsGranularity.DAY.nextBucketStart(date));
+    }
+
+    @Test
+    void weekBucketStartsOnMonday() {
+        assertEquals(LocalDate.of(2024, 3, 4), StatsGranularity.WEEK.bucketStart(LocalDate.of(2024, 3, 4)));
+        assertEquals(LocalDate.of(2024, 3, 4), StatsGranularity.WEEK.bucketStart(LocalDate.of(2024, 3, 10)));
+        assertEquals(LocalDate.of(2024, 3, 11), StatsGranularity.WEEK.bucketStart(LocalDate.of(2024, 3, 11)));
+    }
+
+    @Test
+    void weekBucketCrossesMonthAndYearBoundaries() {
+        // Wednesday 2025-01-01 belongs to the week starting Monday 2024-12-30
+        assertEquals(LocalDate.of(2024, 12, 30), StatsGranularity.WEEK.bucketStart(LocalDate.of(2025, 1, 1)));
+        assertEquals(LocalDate.of(2025, 1, 6), StatsGranularity.WEEK.nextBucketStart(LocalDate.of(2024, 12, 30)));
+    }
+
+    @Test
+    void monthBucketStartsOnTheFirst() {
+        assertEquals(LocalDate.of(2024, 2, 1), StatsGranularity.MONTH.bucketStart(LocalDate.of(2024, 2, 29)));
+        assertEquals(LocalDate.of(2024, 3, 1), StatsGranularity.MONTH.nextBucketStart(LocalDate.of(2024, 2, 1)));
+        assertEquals(LocalDate.of(2025, 1, 1), StatsGranularity.MONTH.nextBucketStart(LocalDate.of(2024, 12, 1)));
+    }
+}
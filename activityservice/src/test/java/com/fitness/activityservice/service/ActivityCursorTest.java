@@ -0,0 +1,90 @@
+package com.fitness.activityservice.service;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ActivityCursorTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 4, 7, 30, 15);
+
+    @Test
+    void roundTripsStartTimeAndId() {
+        ActivityCursor cursor = new ActivityCursor(START, "65f0c0ffee");
+
+        assertEquals(cursor, ActivityCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void roundTripsMissingStartTime() {
+        ActivityCursor cursor = new ActivityCursor(null, "65f0c0ffee");
+
+        assertEquals(cursor, ActivityCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void encodesAsUrlSafeTokenWithoutPadding() {
+        String token = new ActivityCursor(START, "a?b/c").encode();
+
+        assertEquals(-1, token.indexOf('='));
+        assertEquals(-1, token.indexOf('+'));
+        assertEquals(-1, token.indexOf('/'));
+    }
+
+    @Test
+    void rejectsTokenThatIsNotBase64() {
+        assertBadRequest("not a cursor!");
+    }
+
+    @Test
+    void rejectsTokenWithoutSeparator() {
+        assertBadRequest(token("2024-03-04T07:30:15"));
+    }
+
+    @Test
+    void rejectsTokenWithoutId() {
+        assertBadRequest(token("2024-03-04T07:30:15|"));
+    }
+
+    @Test
+    void rejectsTokenWithUnparseableStartTime() {
+        assertBadRequest(token("yesterday|65f0c0ffee"));
+    }
+
+    @Test
+    void seeksPastEarlierStartTimesTiesAndMissingStartTimes() {
+        Document expected = new Document("$or", List.of(
+                new Document("startTime", new Document("$lt", START)),
+                new Document("startTime", START).append("id", new Document("$lt", "b")),
+                new Document("startTime", null)));
+
+        assertEquals(expected, new ActivityCursor(START, "b").seekAfter().getCriteriaObject());
+    }
+
+    @Test
+    void seeksOnlyWithinMissingStartTimesOnceThere() {
+        Document expected = new Document("startTime", null).append("id", new Document("$lt", "b"));
+
+        assertEquals(expected, new ActivityCursor(null, "b").seekAfter().getCriteriaObject());
+    }
+
+    private static void assertBadRequest(String token) {
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> ActivityCursor.decode(token));
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+        assertNotNull(e.getCause());
+    }
+
+    private static String token(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,98 @@
+package com.fitness.activityservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserStatsServiceTest {
+
+    @Test
+    void coversWholeMonthWithOneBucketAndRaggedEdgesWithDays() {
+        List<String> ids = UserStatsService.coveringBucketIds("u",
+                LocalDate.of(2024, 1, 30), LocalDate.of(2024, 3, 4));
+
+        assertEquals(List.of(
+                "u:DAY:2024-01-30",
+                "u:DAY:2024-01-31",
+                "u:MONTH:2024-02-01",
+                "u:DAY:2024-03-01",
+                "u:DAY:2024-03-02",
+                "u:DAY:2024-03-03"), ids);
+    }
+
+    @Test
+    void coversWholeMondayWeeksWithWeekBuckets() {
+        // 2024-03-04 is a Monday
+        List<String> ids = UserStatsService.coveringBucketIds("u",
+                LocalDate.of(2024, 3, 4), LocalDate.of(2024, 3, 13));
+
+        assertEquals(List.of(
+                "u:WEEK:2024-03-04",
+                "u:DAY:2024-03-11",
+                "u:DAY:2024-03-12"), ids);
+    }
+
+    @Test
+    void doesNotUseWeekThatStartsMidRange() {
+        // Wednesday to the following Tuesday spans two partial weeks
+        List<String> ids = UserStatsService.coveringBucketIds("u",
+                LocalDate.of(2024, 3, 6), LocalDate.of(2024, 3, 13));
+
+        assertEquals(7, ids.size());
+        assertTrue(ids.stream().allMatch(id -> id.startsWith("u:DAY:")));
+    }
+
+    @Test
+    void coversEmptyRangeWithNoBuckets() {
+        LocalDate day = LocalDate.of(2024, 3, 4);
+
+        assertEquals(List.of(), UserStatsService.coveringBucketIds("u", day, day));
+    }
+
+    @Test
+    void weeklySeriesUsesDaysUntilFirstMondayThenWholeWeeks() {
+        // Saturday 2024-03-09 to Wednesday 2024-03-20; the last week runs past the range end
+        List<String> ids = UserStatsService.weeklyBucketIds("u",
+                LocalDate.of(2024, 3, 9), LocalDate.of(2024, 3, 20));
+
+        assertEquals(List.of(
+                "u:DAY:2024-03-09",
+                "u:DAY:2024-03-10",
+                "u:WEEK:2024-03-11",
+                "u:WEEK:2024-03-18"), ids);
+    }
+
+    @Test
+    void treatsMissingOrAllPeriodAsWholeHistory() {
+        assertNull(UserStatsService.parsePeriodDays(null));
+        assertNull(UserStatsService.parsePeriodDays(""));
+        assertNull(UserStatsService.parsePeriodDays("all"));
+        assertNull(UserStatsService.parsePeriodDays("ALL"));
+    }
+
+    @Test
+    void parsesNamedPeriods() {
+        assertEquals(1, UserStatsService.parsePeriodDays("day"));
+        assertEquals(7, UserStatsService.parsePeriodDays("Week"));
+        assertEquals(30, UserStatsService.parsePeriodDays("month"));
+        assertEquals(365, UserStatsService.parsePeriodDays("YEAR"));
+    }
+
+    @Test
+    void parsesDayCountsWithAFloorOfOne() {
+        assertEquals(45, UserStatsService.parsePeriodDays("45"));
+        assertEquals(1, UserStatsService.parsePeriodDays("0"));
+        assertEquals(1, UserStatsService.parsePeriodDays("-3"));
+    }
+
+    @Test
+    void rejectsUnknownPeriod() {
+        assertThrows(RuntimeException.class, () -> UserStatsService.parsePeriodDays("fortnight"));
+    }
+}
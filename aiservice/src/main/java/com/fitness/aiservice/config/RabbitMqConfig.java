@@ -1,12 +1,20 @@
 package com.fitness.aiservice.config;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.Properties;
+
 @Configuration
 public class RabbitMqConfig {
 
@@ -19,6 +27,23 @@ public class RabbitMqConfig {
     @Value("${rabbitmq.routing.key}")
     private String routingKey;
 
+    @Value("${rabbitmq.listener.concurrency:4}")
+    private int concurrency;
+
+    // Upper bound on batches being analysed at once; each consumer handles one batch at a time
+    @Value("${rabbitmq.listener.max-in-flight:16}")
+    private int maxInFlight;
+
+    @Value("${rabbitmq.listener.prefetch:2}")
+    private int prefetch;
+
+    // Each consumer hands the listener up to batch-size activities, or whatever arrived within batch-timeout
+    @Value("${rabbitmq.listener.batch-size:5}")
+    private int batchSize;
+
+    @Value("${rabbitmq.listener.batch-timeout-ms:2000}")
+    private long batchTimeoutMs;
+
     @Bean
     public Queue activityQueue() {
         return new Queue(queue, true);
@@ -38,4 +63,32 @@ public class RabbitMqConfig {
     public MessageConverter jsonMessageConverter() {
         return new Jackson2JsonMessageConverter();
     }
+
+    @Bean
+    public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setConcurrentConsumers(Math.min(concurrency, maxInFlight));
+        factory.setMaxConcurrentConsumers(maxInFlight);
+        factory.setPrefetchCount(Math.max(prefetch, batchSize));
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setReceiveTimeout(batchTimeoutMs);
+        return factory;
+    }
+
+    @Bean
+    public Gauge activityQueueDepth(MeterRegistry meterRegistry, ConnectionFactory connectionFactory) {
+        RabbitAdmin rabbitAdmin = new RabbitAdmin(connectionFactory);
+        return Gauge.builder("activity.queue.depth", rabbitAdmin, admin -> {
+                    Properties properties = admin.getQueueProperties(queue);
+                    Object count = properties != null ? properties.get(RabbitAdmin.QUEUE_MESSAGE_COUNT) : null;
+                    return count instanceof Number number ? number.doubleValue() : Double.NaN;
+                })
+                .description("Messages waiting in the activity queue")
+                .tag("queue", queue)
+                .register(meterRegistry);
+    }
 }
@@ -0,0 +1,23 @@
+package com.fitness.aiservice.config;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Thresholds live under resilience4j.*.instances.gemini in the service config
+@Configuration
+public class ResilienceConfig {
+
+    @Bean
+    public CircuitBreaker geminiCircuitBreaker(CircuitBreakerRegistry circuitBreakerRegistry) {
+        return circuitBreakerRegistry.circuitBreaker("gemini");
+    }
+
+    @Bean
+    public Bulkhead geminiBulkhead(BulkheadRegistry bulkheadRegistry) {
+        return bulkheadRegistry.bulkhead("gemini");
+    }
+}
@@ -0,0 +1,60 @@
+package com.fitness.aiservice.controller;
+
+import com.fitness.aiservice.model.CoachingJob;
+import com.fitness.aiservice.model.CoachingJobType;
+import com.fitness.aiservice.service.CoachingJobService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.Objects;
+
+@RestController
+@RequestMapping("/api/recommendations/jobs")
+@RequiredArgsConstructor
+@Slf4j
+public class CoachingJobController {
+
+    private final CoachingJobService coachingJobService;
+
+    @PostMapping("/workout-plan")
+    public ResponseEntity<CoachingJob> submitWorkoutPlan(
+            @RequestBody Map<String, Object> request,
+            @RequestHeader(value = "X-User-ID", required = false) String userId) {
+        return submit(CoachingJobType.WORKOUT_PLAN, request, userId);
+    }
+
+    @PostMapping("/nutrition-advice")
+    public ResponseEntity<CoachingJob> submitNutritionAdvice(
+            @RequestBody Map<String, Object> request,
+            @RequestHeader(value = "X-User-ID", required = false) String userId) {
+        return submit(CoachingJobType.NUTRITION_ADVICE, request, userId);
+    }
+
+    // Another user's job answers 404 rather than 403, so job ids cannot be probed
+    @GetMapping("/{jobId}")
+    public ResponseEntity<CoachingJob> getJob(
+            @PathVariable String jobId,
+            @RequestHeader(value = "X-User-ID", required = false) String userId) {
+        return coachingJobService.getJob(jobId)
+                .filter(job -> Objects.equals(job.getUserId(), userId))
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    private ResponseEntity<CoachingJob> submit(CoachingJobType type, Map<String, Object> request, String userId) {
+        try {
+            CoachingJob job = coachingJobService.submit(type, request, userId);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/recommendations/jobs/" + job.getId()))
+                    .body(job);
+        } catch (RuntimeException e) {
+            log.warn("Rejected {} job: {}", type, e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+}
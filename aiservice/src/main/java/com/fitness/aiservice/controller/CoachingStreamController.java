@@ -0,0 +1,40 @@
+package com.fitness.aiservice.controller;
+
+import com.fitness.aiservice.service.ActivityAIService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+
+import java.util.Map;
+
+/**
+ * Server-sent events variant of the coaching section endpoints: "token" events carry text as it
+ * is generated. Lives under /api/recommendations so it goes through gateway auth and the
+ * per-user AI rate limit.
+ */
+@RestController
+@RequestMapping("/api/recommendations/stream")
+@RequiredArgsConstructor
+@Slf4j
+public class CoachingStreamController {
+
+    private final ActivityAIService activityAIService;
+
+    @PostMapping(value = "/{section}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Map<String, String>>> streamCoachingSection(
+            @PathVariable String section,
+            @RequestBody Map<String, Object> request,
+            @RequestHeader(value = "X-User-ID", required = false) String userId) {
+        log.info("Streaming {} generation for user: {}", section, userId);
+        return activityAIService.streamCoachingSection(section, request)
+                .map(chunk -> ServerSentEvent.builder(Map.of("text", chunk)).event("token").build())
+                .concatWithValues(ServerSentEvent.builder(Map.of("text", "")).event("done").build())
+                .onErrorResume(e -> {
+                    log.error("Error streaming {} generation: ", section, e);
+                    return Flux.just(ServerSentEvent.builder(Map.of("text", "Failed to generate " + section)).event("error").build());
+                });
+    }
+}
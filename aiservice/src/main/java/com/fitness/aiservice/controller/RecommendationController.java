@@ -163,19 +163,8 @@ public class RecommendationController {
             log.info("Generating personalized coaching for user: {}", userId);
             
             // Generate comprehensive coaching plan
-            Map<String, Object> coaching = Map.of(
-                "workoutPlan", activityAIService.generateWorkoutPlan(
-                    "User with recent activities", currentGoals, fitnessLevel),
-                "nutritionAdvice", activityAIService.generateNutritionAdvice(
-                    "Mixed activities", 500, "None"),
-                "progressAnalysis", activityAIService.analyzeProgress(recentActivities),
-                "motivation", activityAIService.generateMotivationalMessage(
-                    "Motivated", "Recent workout", currentGoals),
-                "injuryPrevention", activityAIService.generateInjuryPreventionAdvice(
-                    "Mixed activities", "25-35", fitnessLevel),
-                "socialFeatures", activityAIService.generateSocialFeatures(
-                    "Mixed activities", "Local area", currentGoals)
-            );
+            Map<String, Object> coaching = activityAIService.generatePersonalizedCoaching(
+                recentActivities, currentGoals, fitnessLevel);
             
             return ResponseEntity.ok(coaching);
         } catch (Exception e) {
@@ -0,0 +1,38 @@
+package com.fitness.aiservice.controller;
+
+import com.fitness.aiservice.dto.RecommendationSummary;
+import com.fitness.aiservice.model.Recommendation;
+import com.fitness.aiservice.service.RecommendationService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/recommendations")
+@RequiredArgsConstructor
+@Slf4j
+public class RecommendationHistoryController {
+
+    private final RecommendationService recommendationService;
+
+    @GetMapping("/user/{userId}")
+    public ResponseEntity<List<RecommendationSummary>> getUserRecommendations(
+            @PathVariable String userId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(recommendationService.getUserRecommendationSummaries(userId, page, size));
+    }
+
+    @GetMapping("/activity/{activityId}")
+    public ResponseEntity<Recommendation> getActivityRecommendation(@PathVariable String activityId) {
+        try {
+            return ResponseEntity.ok(recommendationService.getActivityRecommendation(activityId));
+        } catch (RuntimeException e) {
+            log.warn(e.getMessage());
+            return ResponseEntity.notFound().build();
+        }
+    }
+}
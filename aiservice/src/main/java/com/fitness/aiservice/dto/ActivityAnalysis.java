@@ -0,0 +1,37 @@
+package com.fitness.aiservice.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * The JSON shape requested from Gemini for one activity; activityId is only set in batch answers.
+ */
+@Data
+public class ActivityAnalysis {
+    private String activityId;
+    private Analysis analysis;
+    private List<Improvement> improvements;
+    private List<Suggestion> suggestions;
+    private List<String> safety;
+
+    @Data
+    public static class Analysis {
+        private String overall;
+        private String pace;
+        private String heartRate;
+        private String caloriesBurned;
+    }
+
+    @Data
+    public static class Improvement {
+        private String area;
+        private String recommendation;
+    }
+
+    @Data
+    public static class Suggestion {
+        private String workout;
+        private String description;
+    }
+}
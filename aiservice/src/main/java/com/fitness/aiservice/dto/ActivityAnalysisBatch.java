@@ -0,0 +1,10 @@
+package com.fitness.aiservice.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ActivityAnalysisBatch {
+    private List<ActivityAnalysis> recommendations;
+}
@@ -0,0 +1,18 @@
+package com.fitness.aiservice.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * List-view projection of a recommendation; leaves out the improvements, suggestions and
+ * safety arrays, which are only needed on the detail view.
+ */
+@Data
+public class RecommendationSummary {
+    private String id;
+    private String activityId;
+    private String activityType;
+    private String recommendation;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,36 @@
+package com.fitness.aiservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Document(collection = "coaching_jobs")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CoachingJob {
+    @Id
+    private String id;
+    private String userId;
+    private CoachingJobType type;
+    private CoachingJobStatus status;
+    private Map<String, Object> request;
+    private Map<String, Object> result;
+    private String error;
+
+    // Finished jobs are only polled for a short while; Mongo drops them after a week
+    @CreatedDate
+    @Indexed(expireAfter = "7d")
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+}
@@ -0,0 +1,8 @@
+package com.fitness.aiservice.model;
+
+public enum CoachingJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,6 @@
+package com.fitness.aiservice.model;
+
+public enum CoachingJobType {
+    WORKOUT_PLAN,
+    NUTRITION_ADVICE
+}
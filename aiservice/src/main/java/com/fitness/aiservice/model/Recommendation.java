@@ -6,12 +6,15 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Document(collection = "recommendations")
+@CompoundIndex(name = "user_created_at_idx", def = "{'userId': 1, 'createdAt': -1}")
 @Data
 @Builder
 @AllArgsConstructor
@@ -19,6 +22,7 @@ import java.util.List;
 public class Recommendation {
     @Id
     private String id;
+    @Indexed(unique = true)
     private String activityId;
     private String userId;
     private String activityType;
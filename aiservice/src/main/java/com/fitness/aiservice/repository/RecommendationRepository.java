@@ -1,14 +1,22 @@
 package com.fitness.aiservice.repository;
 
+import com.fitness.aiservice.dto.RecommendationSummary;
 import com.fitness.aiservice.model.Recommendation;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface RecommendationRepository extends MongoRepository<Recommendation, String> {
     List<Recommendation> findByUserId(String userId);
+    List<RecommendationSummary> findSummariesByUserId(String userId, Pageable pageable);
     Optional<Recommendation> findByActivityId(String activityId);
+
+    @Query(value = "{ 'activityId': { $in: ?0 } }", fields = "{ 'activityId': 1 }")
+    List<Recommendation> findActivityIdsByActivityIdIn(Collection<String> activityIds);
 }
@@ -1,25 +1,37 @@
 package com.fitness.aiservice.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fitness.aiservice.dto.ActivityAnalysis;
+import com.fitness.aiservice.dto.ActivityAnalysisBatch;
 import com.fitness.aiservice.model.Activity;
 import com.fitness.aiservice.model.Recommendation;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class ActivityAIService {
     private final GeminiService geminiService;
+    private final GeminiResponseDecoder responseDecoder;
+
+    @Value("${gemini.coaching.timeout:20s}")
+    private Duration coachingTimeout;
 
     public Recommendation generateRecommendation(Activity activity) {
         String prompt = createPromptForActivity(activity);
@@ -28,33 +40,84 @@ public class ActivityAIService {
         return processAiResponse(activity, aiResponse);
     }
 
+    /**
+     * Analyses several activities with one structured prompt. Activities the batch answer
+     * does not cover (or the whole batch, if it cannot be parsed) fall back to single calls.
+     * If a single call fails, the recommendations finished so far travel with the
+     * {@link PartialRecommendationsException} so the caller can keep them.
+     */
+    public List<Recommendation> generateRecommendations(List<Activity> activities) {
+        if (activities.size() == 1) {
+            return List.of(generateRecommendation(activities.get(0)));
+        }
+
+        Map<String, Recommendation> batched = Map.of();
+        try {
+            String aiResponse = geminiService.getAnswer(createPromptForActivities(activities));
+            batched = processBatchAiResponse(activities, aiResponse);
+        } catch (Exception e) {
+            log.error("Batched recommendation call failed for {} activities: ", activities.size(), e);
+        }
+
+        List<Recommendation> recommendations = new ArrayList<>(activities.size());
+        for (Activity activity : activities) {
+            Recommendation recommendation = batched.get(activity.getId());
+            if (recommendation == null) {
+                try {
+                    recommendation = generateRecommendation(activity);
+                } catch (RuntimeException e) {
+                    // Batched answers for later activities are already paid for, keep them too
+                    activities.stream()
+                            .skip(recommendations.size() + 1)
+                            .map(remaining -> batched.get(remaining.getId()))
+                            .filter(Objects::nonNull)
+                            .forEach(recommendations::add);
+                    throw new PartialRecommendationsException(recommendations, e);
+                }
+            }
+            recommendations.add(recommendation);
+        }
+        log.info("Generated {} recommendations, {} from the batched call", recommendations.size(), batched.size());
+        return recommendations;
+    }
+
     public Map<String, Object> generateWorkoutPlan(String userProfile, String goals, String fitnessLevel) {
         try {
-            String aiResponse = geminiService.generateWorkoutPlan(userProfile, goals, fitnessLevel);
-            JsonNode response = geminiService.getStructuredResponse(aiResponse);
-            return new ObjectMapper().convertValue(response, Map.class);
+            return fetchWorkoutPlan(userProfile, goals, fitnessLevel);
         } catch (Exception e) {
             log.error("Error generating workout plan: ", e);
             return createDefaultWorkoutPlan();
         }
     }
 
+    /**
+     * Like generateWorkoutPlan, but Gemini and parsing failures propagate instead of being
+     * replaced by the default plan, so background jobs can report them.
+     */
+    public Map<String, Object> fetchWorkoutPlan(String userProfile, String goals, String fitnessLevel) {
+        String aiResponse = geminiService.generateWorkoutPlan(userProfile, goals, fitnessLevel);
+        return responseDecoder.decodeMap(aiResponse);
+    }
+
     public Map<String, Object> generateNutritionAdvice(String activityType, int caloriesBurned, String dietaryRestrictions) {
         try {
-            String aiResponse = geminiService.generateNutritionAdvice(activityType, caloriesBurned, dietaryRestrictions);
-            JsonNode response = geminiService.getStructuredResponse(aiResponse);
-            return new ObjectMapper().convertValue(response, Map.class);
+            return fetchNutritionAdvice(activityType, caloriesBurned, dietaryRestrictions);
         } catch (Exception e) {
             log.error("Error generating nutrition advice: ", e);
             return createDefaultNutritionAdvice();
         }
     }
 
+    // Failing counterpart of generateNutritionAdvice, see fetchWorkoutPlan
+    public Map<String, Object> fetchNutritionAdvice(String activityType, int caloriesBurned, String dietaryRestrictions) {
+        String aiResponse = geminiService.generateNutritionAdvice(activityType, caloriesBurned, dietaryRestrictions);
+        return responseDecoder.decodeMap(aiResponse);
+    }
+
     public Map<String, Object> analyzeProgress(List<Map<String, Object>> activities) {
         try {
             String aiResponse = geminiService.analyzeProgress(activities);
-            JsonNode response = geminiService.getStructuredResponse(aiResponse);
-            return new ObjectMapper().convertValue(response, Map.class);
+            return responseDecoder.decodeMap(aiResponse);
         } catch (Exception e) {
             log.error("Error analyzing progress: ", e);
             return createDefaultProgressAnalysis();
@@ -64,8 +127,7 @@ public class ActivityAIService {
     public Map<String, Object> generateMotivationalMessage(String userMood, String recentActivity, String goals) {
         try {
             String aiResponse = geminiService.generateMotivationalMessage(userMood, recentActivity, goals);
-            JsonNode response = geminiService.getStructuredResponse(aiResponse);
-            return new ObjectMapper().convertValue(response, Map.class);
+            return responseDecoder.decodeMap(aiResponse);
         } catch (Exception e) {
             log.error("Error generating motivational message: ", e);
             return createDefaultMotivationalMessage();
@@ -75,8 +137,7 @@ public class ActivityAIService {
     public Map<String, Object> generateInjuryPreventionAdvice(String activityType, String userAge, String fitnessLevel) {
         try {
             String aiResponse = geminiService.generateInjuryPreventionAdvice(activityType, userAge, fitnessLevel);
-            JsonNode response = geminiService.getStructuredResponse(aiResponse);
-            return new ObjectMapper().convertValue(response, Map.class);
+            return responseDecoder.decodeMap(aiResponse);
         } catch (Exception e) {
             log.error("Error generating injury prevention advice: ", e);
             return createDefaultInjuryPreventionAdvice();
@@ -86,63 +147,152 @@ public class ActivityAIService {
     public Map<String, Object> generateSocialFeatures(String activityType, String location, String goals) {
         try {
             String aiResponse = geminiService.generateSocialFeatures(activityType, location, goals);
-            JsonNode response = geminiService.getStructuredResponse(aiResponse);
-            return new ObjectMapper().convertValue(response, Map.class);
+            return responseDecoder.decodeMap(aiResponse);
         } catch (Exception e) {
             log.error("Error generating social features: ", e);
             return createDefaultSocialFeatures();
         }
     }
 
+    /**
+     * Streams the raw generated text for one coaching section; section names match the
+     * non-streaming endpoints (workout-plan, nutrition-advice, ...).
+     */
+    @SuppressWarnings("unchecked")
+    public Flux<String> streamCoachingSection(String section, Map<String, Object> request) {
+        String prompt = switch (section) {
+            case "workout-plan" -> geminiService.workoutPlanPrompt(
+                    (String) request.get("userProfile"), (String) request.get("goals"), (String) request.get("fitnessLevel"));
+            case "nutrition-advice" -> geminiService.nutritionAdvicePrompt(
+                    (String) request.get("activityType"),
+                    request.get("caloriesBurned") instanceof Number calories ? calories.intValue() : 0,
+                    (String) request.get("dietaryRestrictions"));
+            case "progress-analysis" -> geminiService.progressAnalysisPrompt(
+                    (List<Map<String, Object>>) request.getOrDefault("activities", List.of()));
+            case "motivation" -> geminiService.motivationalMessagePrompt(
+                    (String) request.get("userMood"), (String) request.get("recentActivity"), (String) request.get("goals"));
+            case "injury-prevention" -> geminiService.injuryPreventionPrompt(
+                    (String) request.get("activityType"), (String) request.get("userAge"), (String) request.get("fitnessLevel"));
+            case "social-features" -> geminiService.socialFeaturesPrompt(
+                    (String) request.get("activityType"), (String) request.get("location"), (String) request.get("goals"));
+            default -> null;
+        };
+        if (prompt == null) {
+            return Flux.error(new RuntimeException("Unknown coaching section: " + section));
+        }
+        return geminiService.streamAnswer(prompt);
+    }
+
+    /**
+     * Runs the six coaching sections concurrently. A section that misses the per-call timeout
+     * is answered with its default payload, so latency tracks the slowest call up to the timeout.
+     */
+    public Map<String, Object> generatePersonalizedCoaching(List<Map<String, Object>> recentActivities,
+                                                            String currentGoals, String fitnessLevel) {
+        return Mono.zip(
+                coachingSection("workout plan",
+                        geminiService.workoutPlanPrompt("User with recent activities", currentGoals, fitnessLevel),
+                        this::createDefaultWorkoutPlan),
+                coachingSection("nutrition advice",
+                        geminiService.nutritionAdvicePrompt("Mixed activities", 500, "None"),
+                        this::createDefaultNutritionAdvice),
+                coachingSection("progress analysis",
+                        geminiService.progressAnalysisPrompt(recentActivities),
+                        this::createDefaultProgressAnalysis),
+                coachingSection("motivation",
+                        geminiService.motivationalMessagePrompt("Motivated", "Recent workout", currentGoals),
+                        this::createDefaultMotivationalMessage),
+                coachingSection("injury prevention",
+                        geminiService.injuryPreventionPrompt("Mixed activities", "25-35", fitnessLevel),
+                        this::createDefaultInjuryPreventionAdvice),
+                coachingSection("social features",
+                        geminiService.socialFeaturesPrompt("Mixed activities", "Local area", currentGoals),
+                        this::createDefaultSocialFeatures))
+                .map(sections -> Map.<String, Object>of(
+                    "workoutPlan", sections.getT1(),
+                    "nutritionAdvice", sections.getT2(),
+                    "progressAnalysis", sections.getT3(),
+                    "motivation", sections.getT4(),
+                    "injuryPrevention", sections.getT5(),
+                    "socialFeatures", sections.getT6()
+                ))
+                .block();
+    }
+
+    // The timeout cancels the subscription, which aborts the Gemini request instead of leaving it running
+    private Mono<Map<String, Object>> coachingSection(String section, String prompt,
+                                                      Supplier<Map<String, Object>> fallback) {
+        return geminiService.getAnswerAsync(prompt)
+                .map(responseDecoder::decodeMap)
+                .timeout(coachingTimeout)
+                .onErrorResume(e -> {
+                    log.error("Coaching section {} failed, using the default: {}", section, e.toString());
+                    return Mono.fromSupplier(fallback);
+                });
+    }
+
     private Recommendation processAiResponse(Activity activity, String aiResponse) {
         try {
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode rootNode = mapper.readTree(aiResponse);
-
-            JsonNode textNode = rootNode.path("candidates")
-                    .get(0)
-                    .path("content")
-                    .path("parts")
-                    .get(0)
-                    .path("text");
-
-            String jsonContent = textNode.asText()
-                    .replaceAll("```json\\n","")
-                    .replaceAll("\\n```", "")
-                    .trim();
-
-//            log.info("PARSED RESPONSE FROM AI: {} ", jsonContent);
-
-            JsonNode analysisJson = mapper.readTree(jsonContent);
-            JsonNode analysisNode = analysisJson.path("analysis");
-            
-            StringBuilder fullAnalysis = new StringBuilder();
-            addAnalysisSection(fullAnalysis, analysisNode, "overall", "Overall:");
-            addAnalysisSection(fullAnalysis, analysisNode, "pace", "Pace:");
-            addAnalysisSection(fullAnalysis, analysisNode, "heartRate", "Heart Rate:");
-            addAnalysisSection(fullAnalysis, analysisNode, "caloriesBurned", "Calories:");
-
-            List<String> improvements = extractImprovements(analysisJson.path("improvements"));
-            List<String> suggestions = extractSuggestions(analysisJson.path("suggestions"));
-            List<String> safety = extractSafetyGuidelines(analysisJson.path("safety"));
-
-            return Recommendation.builder()
-                    .activityId(activity.getId())
-                    .userId(activity.getUserId())
-                    .activityType(activity.getType())
-                    .recommendation(fullAnalysis.toString().trim())
-                    .improvements(improvements)
-                    .suggestions(suggestions)
-                    .safety(safety)
-                    .createdAt(LocalDateTime.now())
-                    .build();
-            
+            return toRecommendation(activity, responseDecoder.decode(aiResponse, ActivityAnalysis.class));
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("Could not parse AI response for activity {}: ", activity.getId(), e);
             return createDefaultRecommendation(activity);
         }
     }
 
+    /**
+     * Parses a batch response into recommendations keyed by activity id. Entries that are
+     * missing or malformed are simply absent, so the caller can retry those activities alone.
+     */
+    private Map<String, Recommendation> processBatchAiResponse(List<Activity> activities, String aiResponse) {
+        Map<String, Recommendation> recommendations = new HashMap<>();
+        try {
+            ActivityAnalysisBatch batch = responseDecoder.decode(aiResponse, ActivityAnalysisBatch.class);
+            if (batch.getRecommendations() == null) {
+                return recommendations;
+            }
+
+            Map<String, Activity> activitiesById = activities.stream()
+                    .collect(Collectors.toMap(Activity::getId, activity -> activity, (first, second) -> first));
+            for (ActivityAnalysis entry : batch.getRecommendations()) {
+                Activity activity = entry == null ? null : activitiesById.get(entry.getActivityId());
+                if (activity != null) {
+                    recommendations.put(activity.getId(), toRecommendation(activity, entry));
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Could not parse batched AI response for {} activities: {}", activities.size(), e.getMessage());
+        }
+        return recommendations;
+    }
+
+    private Recommendation toRecommendation(Activity activity, ActivityAnalysis analysisJson) {
+        ActivityAnalysis.Analysis analysis = analysisJson.getAnalysis();
+
+        StringBuilder fullAnalysis = new StringBuilder();
+        if (analysis != null) {
+            addAnalysisSection(fullAnalysis, analysis.getOverall(), "Overall:");
+            addAnalysisSection(fullAnalysis, analysis.getPace(), "Pace:");
+            addAnalysisSection(fullAnalysis, analysis.getHeartRate(), "Heart Rate:");
+            addAnalysisSection(fullAnalysis, analysis.getCaloriesBurned(), "Calories:");
+        }
+
+        List<String> improvements = extractImprovements(analysisJson.getImprovements());
+        List<String> suggestions = extractSuggestions(analysisJson.getSuggestions());
+        List<String> safety = extractSafetyGuidelines(analysisJson.getSafety());
+
+        return Recommendation.builder()
+                .activityId(activity.getId())
+                .userId(activity.getUserId())
+                .activityType(activity.getType())
+                .recommendation(fullAnalysis.toString().trim())
+                .improvements(improvements)
+                .suggestions(suggestions)
+                .safety(safety)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
     private Recommendation createDefaultRecommendation(Activity activity) {
         return Recommendation.builder()
                 .activityId(activity.getId())
@@ -160,48 +310,46 @@ public class ActivityAIService {
                 .build();
     }
 
-    private List<String> extractSafetyGuidelines(JsonNode safetyNode) {
+    private List<String> extractSafetyGuidelines(List<String> safetyItems) {
         List<String> safety = new ArrayList<>();
-        if (safetyNode.isArray()) {
-            safetyNode.forEach(item -> safety.add(item.asText()));
+        if (safetyItems != null) {
+            safetyItems.forEach(item -> safety.add(Objects.toString(item, "")));
         }
         return safety.isEmpty() ?
                 Collections.singletonList("Follow general safety guidelines") :
                 safety;
     }
 
-    private List<String> extractSuggestions(JsonNode suggestionsNode) {
+    private List<String> extractSuggestions(List<ActivityAnalysis.Suggestion> suggestionItems) {
         List<String> suggestions = new ArrayList<>();
-        if (suggestionsNode.isArray()) {
-            suggestionsNode.forEach(suggestion -> {
-                String workout = suggestion.path("workout").asText();
-                String description = suggestion.path("description").asText();
-                suggestions.add(String.format("%s: %s", workout, description));
-            });
+        if (suggestionItems != null) {
+            suggestionItems.stream().filter(Objects::nonNull).forEach(suggestion ->
+                    suggestions.add(String.format("%s: %s",
+                            Objects.toString(suggestion.getWorkout(), ""),
+                            Objects.toString(suggestion.getDescription(), ""))));
         }
         return suggestions.isEmpty() ?
                 Collections.singletonList("No specific suggestions provided") :
                 suggestions;
     }
 
-    private List<String> extractImprovements(JsonNode improvementsNode) {
+    private List<String> extractImprovements(List<ActivityAnalysis.Improvement> improvementItems) {
         List<String> improvements = new ArrayList<>();
-        if (improvementsNode.isArray()) {
-            improvementsNode.forEach(improvement -> {
-                String area = improvement.path("area").asText();
-                String detail = improvement.path("recommendation").asText();
-                improvements.add(String.format("%s: %s", area, detail));
-            });
+        if (improvementItems != null) {
+            improvementItems.stream().filter(Objects::nonNull).forEach(improvement ->
+                    improvements.add(String.format("%s: %s",
+                            Objects.toString(improvement.getArea(), ""),
+                            Objects.toString(improvement.getRecommendation(), ""))));
         }
         return improvements.isEmpty() ?
                 Collections.singletonList("No specific improvements provided") :
                 improvements;
     }
 
-    private void addAnalysisSection(StringBuilder fullAnalysis, JsonNode analysisNode, String key, String prefix) {
-        if (!analysisNode.path(key).isMissingNode()) {
+    private void addAnalysisSection(StringBuilder fullAnalysis, String value, String prefix) {
+        if (value != null) {
             fullAnalysis.append(prefix)
-                    .append(analysisNode.path(key).asText())
+                    .append(value)
                     .append("\n\n");
         }
     }
@@ -250,6 +398,63 @@ public class ActivityAIService {
         );
     }
 
+    private String createPromptForActivities(List<Activity> activities) {
+        StringBuilder activityLines = new StringBuilder();
+        for (Activity activity : activities) {
+            activityLines.append(String.format("""
+        - Activity ID: %s
+          Activity Type: %s
+          Duration: %d minutes
+          Calories Burned: %d
+          Additional Metrics: %s
+        """,
+                    activity.getId(),
+                    activity.getType(),
+                    activity.getDuration(),
+                    activity.getCaloriesBurned(),
+                    activity.getAdditionalMetrics()
+            ));
+        }
+
+        return String.format("""
+        Analyze each of the following fitness activities and provide detailed recommendations in the following EXACT JSON format:
+        {
+          "recommendations": [
+            {
+              "activityId": "Activity ID exactly as given",
+              "analysis": {
+                "overall": "Overall analysis here",
+                "pace": "Pace analysis here",
+                "heartRate": "Heart rate analysis here",
+                "caloriesBurned": "Calories analysis here"
+              },
+              "improvements": [
+                {
+                  "area": "Area name",
+                  "recommendation": "Detailed recommendation"
+                }
+              ],
+              "suggestions": [
+                {
+                  "workout": "Workout name",
+                  "description": "Detailed workout description"
+                }
+              ],
+              "safety": [
+                "Safety point 1",
+                "Safety point 2"
+              ]
+            }
+          ]
+        }
+
+        Analyze these activities:
+        %s
+        Return exactly one entry per activity and copy each Activity ID unchanged.
+        Ensure the response follows the EXACT JSON format shown above.
+        """, activityLines);
+    }
+
     private Map<String, Object> createDefaultWorkoutPlan() {
         return Map.of(
             "plan", Map.of(
@@ -371,4 +576,18 @@ public class ActivityAIService {
             )
         );
     }
+
+    // Carries the recommendations generated before a per-activity call failed
+    public static class PartialRecommendationsException extends RuntimeException {
+        private final List<Recommendation> completed;
+
+        public PartialRecommendationsException(List<Recommendation> completed, Throwable cause) {
+            super("Generated " + completed.size() + " recommendations before a call failed", cause);
+            this.completed = List.copyOf(completed);
+        }
+
+        public List<Recommendation> getCompleted() {
+            return completed;
+        }
+    }
 }
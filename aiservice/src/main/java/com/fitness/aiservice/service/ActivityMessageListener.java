@@ -3,24 +3,128 @@ package com.fitness.aiservice.service;
 import com.fitness.aiservice.model.Activity;
 import com.fitness.aiservice.model.Recommendation;
 import com.fitness.aiservice.repository.RecommendationRepository;
-import lombok.RequiredArgsConstructor;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class ActivityMessageListener {
 
     private final ActivityAIService aiService;
+    private final RecommendationWriter recommendationWriter;
     private final RecommendationRepository recommendationRepository;
+    private final Timer processingTimer;
+    private final Counter duplicateCounter;
+
+    @Value("${rabbitmq.listener.breaker-open-backoff:5s}")
+    private Duration breakerOpenBackoff;
+
+    public ActivityMessageListener(ActivityAIService aiService, RecommendationWriter recommendationWriter,
+                                   RecommendationRepository recommendationRepository, MeterRegistry meterRegistry) {
+        this.aiService = aiService;
+        this.recommendationWriter = recommendationWriter;
+        this.recommendationRepository = recommendationRepository;
+        this.processingTimer = Timer.builder("activity.processing")
+                .description("Time to turn a batch of queued activities into stored recommendations")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.duplicateCounter = Counter.builder("activity.processing.duplicates")
+                .description("Redelivered activities skipped because a recommendation already exists")
+                .register(meterRegistry);
+    }
+
+    // Returning only after the buffered write lands keeps delivery at-least-once: the container
+    // acks the batch on return and requeues it if the flush fails.
+    @RabbitListener(queues = "${rabbitmq.queue.name}")
+    public void processActivities(List<Activity> activities) {
+        log.info("Received {} activities for processing", activities.size());
+        try {
+            processingTimer.record(() -> {
+                List<Activity> pending = withoutRecommendation(activities);
+                if (pending.isEmpty()) {
+                    return;
+                }
+                List<Recommendation> recommendations = aiService.generateRecommendations(pending);
+                recommendationWriter.writeAndFlush(recommendations).join();
+            });
+        } catch (RuntimeException e) {
+            if (e instanceof ActivityAIService.PartialRecommendationsException partial) {
+                storeCompleted(partial.getCompleted());
+            }
+            if (isGeminiUnavailable(e)) {
+                // Gemini is refusing work right now: hold this consumer back instead of spinning on requeues
+                log.warn("Gemini unavailable ({}), requeueing {} activities after {}",
+                        e.getClass().getSimpleName(), activities.size(), breakerOpenBackoff);
+                pause();
+            }
+            throw e;
+        }
+    }
+
+    // Open breaker, full bulkhead, local rate limit or an upstream 429 that outlasted the retries
+    private boolean isGeminiUnavailable(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof CallNotPermittedException
+                    || cause instanceof BulkheadFullException
+                    || cause instanceof GeminiRateLimiter.RateLimitExceededException
+                    || cause instanceof WebClientResponseException.TooManyRequests) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Stored before the batch is requeued, so the redelivery skips them instead of calling Gemini again
+    private void storeCompleted(List<Recommendation> completed) {
+        try {
+            recommendationWriter.writeAndFlush(completed).join();
+            log.info("Stored {} recommendations generated before the failure", completed.size());
+        } catch (RuntimeException e) {
+            log.error("Failed to store {} recommendations generated before the failure: ", completed.size(), e);
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(breakerOpenBackoff);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Drops activities that already have a stored recommendation (redeliveries after a crash or
+     * a lost ack) and repeats within the batch, so no activity is sent to Gemini twice.
+     */
+    private List<Activity> withoutRecommendation(List<Activity> activities) {
+        Map<String, Activity> unique = new LinkedHashMap<>();
+        activities.forEach(activity -> unique.putIfAbsent(activity.getId(), activity));
+
+        Set<String> processed = recommendationRepository.findActivityIdsByActivityIdIn(unique.keySet()).stream()
+                .map(Recommendation::getActivityId)
+                .collect(Collectors.toSet());
+        unique.keySet().removeAll(processed);
 
-    @RabbitListener(queues = "activity.queue")
-    public void processActivity(Activity activity) {
-        log.info("Received activity for processing: {}", activity.getId());
-//        log.info("Generated Recommendation: {}", aiService.generateRecommendation(activity));
-        Recommendation recommendation = aiService.generateRecommendation(activity);
-        recommendationRepository.save(recommendation);
+        int skipped = activities.size() - unique.size();
+        if (skipped > 0) {
+            duplicateCounter.increment(skipped);
+            log.info("Skipping {} already processed or repeated activities", skipped);
+        }
+        return List.copyOf(unique.values());
     }
 }
@@ -0,0 +1,198 @@
+package com.fitness.aiservice.service;
+
+import com.fitness.aiservice.model.CoachingJob;
+import com.fitness.aiservice.model.CoachingJobStatus;
+import com.fitness.aiservice.model.CoachingJobType;
+import com.fitness.aiservice.repository.CoachingJobRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs workout-plan and nutrition-advice generation off the request thread. Jobs are stored in
+ * Mongo and executed by a fixed number of workers behind a bounded queue; when the queue is
+ * full, submission fails fast instead of piling up Gemini calls.
+ *
+ * Workers claim a job by flipping it from QUEUED to RUNNING, so a job picked up again after a
+ * restart (or by another instance) still runs once. Jobs left QUEUED by a stopped instance are
+ * re-enqueued, and RUNNING jobs that outlive coaching.jobs.stale-after are marked FAILED.
+ */
+@Service
+@Slf4j
+public class CoachingJobService {
+
+    private final ActivityAIService activityAIService;
+    private final CoachingJobRepository coachingJobRepository;
+    private final MongoTemplate mongoTemplate;
+    private final ThreadPoolExecutor workers;
+    private final Duration staleAfter;
+    // Jobs sitting in this instance's queue, so recovery does not enqueue them twice
+    private final Set<String> localJobs = ConcurrentHashMap.newKeySet();
+
+    public CoachingJobService(ActivityAIService activityAIService, CoachingJobRepository coachingJobRepository,
+                              MongoTemplate mongoTemplate, MeterRegistry meterRegistry,
+                              @Value("${coaching.jobs.workers:4}") int workerCount,
+                              @Value("${coaching.jobs.queue-capacity:100}") int queueCapacity,
+                              @Value("${coaching.jobs.stale-after:10m}") Duration staleAfter) {
+        this.activityAIService = activityAIService;
+        this.coachingJobRepository = coachingJobRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.staleAfter = staleAfter;
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofVirtual().name("coaching-job-", 0).factory());
+
+        Gauge.builder("coaching.jobs.queue.depth", workers, executor -> executor.getQueue().size())
+                .description("Coaching jobs waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("coaching.jobs.active", workers, ThreadPoolExecutor::getActiveCount)
+                .description("Coaching jobs currently being generated")
+                .register(meterRegistry);
+    }
+
+    public CoachingJob submit(CoachingJobType type, Map<String, Object> request, String userId) {
+        CoachingJob job = coachingJobRepository.save(CoachingJob.builder()
+                .userId(userId)
+                .type(type)
+                .status(CoachingJobStatus.QUEUED)
+                .request(request)
+                .build());
+        try {
+            enqueue(job.getId());
+        } catch (RejectedExecutionException e) {
+            job.setStatus(CoachingJobStatus.FAILED);
+            job.setError("Job queue is full");
+            job.setCompletedAt(LocalDateTime.now());
+            coachingJobRepository.save(job);
+            throw new RuntimeException("Coaching job queue is full", e);
+        }
+        log.info("Queued {} job {}", type, job.getId());
+        return job;
+    }
+
+    public Optional<CoachingJob> getJob(String jobId) {
+        return coachingJobRepository.findById(jobId);
+    }
+
+    /**
+     * Picks up jobs a previous run of the service accepted but never finished.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverOnStartup() {
+        recover(LocalDateTime.now());
+    }
+
+    // Also catches jobs orphaned by other instances that stopped without restarting
+    @Scheduled(fixedDelayString = "${coaching.jobs.recovery-interval-ms:60000}",
+            initialDelayString = "${coaching.jobs.recovery-interval-ms:60000}")
+    public void recoverStaleJobs() {
+        recover(LocalDateTime.now().minus(staleAfter));
+    }
+
+    private void recover(LocalDateTime queuedBefore) {
+        LocalDateTime now = LocalDateTime.now();
+        long failed = mongoTemplate.updateMulti(
+                Query.query(Criteria.where("status").is(CoachingJobStatus.RUNNING)
+                        .and("startedAt").lt(now.minus(staleAfter))),
+                new Update().set("status", CoachingJobStatus.FAILED)
+                        .set("error", "Job was interrupted before it completed")
+                        .set("completedAt", now),
+                CoachingJob.class).getModifiedCount();
+
+        List<CoachingJob> queued = mongoTemplate.find(
+                Query.query(Criteria.where("status").is(CoachingJobStatus.QUEUED)
+                        .and("createdAt").lt(queuedBefore)),
+                CoachingJob.class);
+        int requeued = 0;
+        for (CoachingJob job : queued) {
+            if (localJobs.contains(job.getId())) {
+                continue;
+            }
+            try {
+                enqueue(job.getId());
+                requeued++;
+            } catch (RejectedExecutionException e) {
+                log.warn("Job queue is full, leaving {} queued jobs for the next recovery pass", queued.size() - requeued);
+                break;
+            }
+        }
+        if (failed > 0 || requeued > 0) {
+            log.info("Recovered coaching jobs: {} re-enqueued, {} stale running jobs failed", requeued, failed);
+        }
+    }
+
+    private void enqueue(String jobId) {
+        localJobs.add(jobId);
+        try {
+            workers.execute(() -> run(jobId));
+        } catch (RejectedExecutionException e) {
+            localJobs.remove(jobId);
+            throw e;
+        }
+    }
+
+    private void run(String jobId) {
+        try {
+            CoachingJob job = mongoTemplate.findAndModify(
+                    Query.query(Criteria.where("id").is(jobId).and("status").is(CoachingJobStatus.QUEUED)),
+                    new Update().set("status", CoachingJobStatus.RUNNING).set("startedAt", LocalDateTime.now()),
+                    FindAndModifyOptions.options().returnNew(true),
+                    CoachingJob.class);
+            if (job == null) {
+                // Already claimed elsewhere, or failed on submission
+                return;
+            }
+            try {
+                job.setResult(generate(job.getType(), job.getRequest()));
+                job.setStatus(CoachingJobStatus.COMPLETED);
+            } catch (Exception e) {
+                log.error("Coaching job {} failed: ", job.getId(), e);
+                job.setStatus(CoachingJobStatus.FAILED);
+                job.setError(e.getMessage());
+            }
+            job.setCompletedAt(LocalDateTime.now());
+            coachingJobRepository.save(job);
+        } finally {
+            localJobs.remove(jobId);
+        }
+    }
+
+    private Map<String, Object> generate(CoachingJobType type, Map<String, Object> request) {
+        return switch (type) {
+            case WORKOUT_PLAN -> activityAIService.fetchWorkoutPlan(
+                    (String) request.get("userProfile"), (String) request.get("goals"), (String) request.get("fitnessLevel"));
+            case NUTRITION_ADVICE -> activityAIService.fetchNutritionAdvice(
+                    (String) request.get("activityType"),
+                    request.get("caloriesBurned") instanceof Number calories ? calories.intValue() : 0,
+                    (String) request.get("dietaryRestrictions"));
+        };
+    }
+
+    @PreDestroy
+    public void shutdownWorkers() {
+        workers.shutdownNow();
+    }
+}
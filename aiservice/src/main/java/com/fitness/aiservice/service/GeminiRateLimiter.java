@@ -0,0 +1,131 @@
+package com.fitness.aiservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token bucket in front of the Gemini API whose refill rate adapts to the provider quota:
+ * each 429 halves the rate (and honours Retry-After), each success nudges it back up.
+ * Callers reserve a token and wait out any deficit instead of spending calls on errors.
+ */
+@Component
+@Slf4j
+public class GeminiRateLimiter {
+
+    private final double minRate;
+    private final double maxRate;
+    private final double increaseStep;
+    private final double burst;
+    private final Duration maxWait;
+    private final Counter throttledCounter;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private double rate;
+    private double tokens;
+    private long lastRefillNanos = System.nanoTime();
+
+    public GeminiRateLimiter(MeterRegistry meterRegistry,
+                             @Value("${gemini.rate-limit.min-rate:0.1}") double minRate,
+                             @Value("${gemini.rate-limit.max-rate:2.0}") double maxRate,
+                             @Value("${gemini.rate-limit.increase-step:0.05}") double increaseStep,
+                             @Value("${gemini.rate-limit.burst:5}") double burst,
+                             @Value("${gemini.rate-limit.max-wait:30s}") Duration maxWait) {
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+        this.increaseStep = increaseStep;
+        this.burst = burst;
+        this.maxWait = maxWait;
+        this.rate = maxRate;
+        this.tokens = burst;
+        Gauge.builder("gemini.rate-limit.rate", this, GeminiRateLimiter::currentRate)
+                .description("Current permitted Gemini calls per second")
+                .register(meterRegistry);
+        this.throttledCounter = Counter.builder("gemini.rate-limit.throttled")
+                .description("Gemini calls rejected with 429")
+                .register(meterRegistry);
+    }
+
+    public Mono<Void> acquire() {
+        long waitNanos = reserve();
+        if (waitNanos > maxWait.toNanos()) {
+            release();
+            return Mono.error(new RateLimitExceededException("Gemini rate limit exceeded, wait would be "
+                    + Duration.ofNanos(waitNanos).toSeconds() + "s"));
+        }
+        return waitNanos <= 0 ? Mono.empty() : Mono.delay(Duration.ofNanos(waitNanos)).then();
+    }
+
+    public void onSuccess() {
+        lock.lock();
+        try {
+            rate = Math.min(maxRate, rate + increaseStep);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onThrottled(Duration retryAfter) {
+        throttledCounter.increment();
+        lock.lock();
+        try {
+            refill();
+            rate = Math.max(minRate, rate / 2);
+            // Push the bucket into deficit so nobody calls again before the provider's Retry-After
+            double pause = retryAfter != null ? retryAfter.toNanos() / 1e9 * rate : 0;
+            tokens = Math.min(tokens, -pause);
+            log.warn("Gemini throttled the service, lowering rate to {} calls/s", rate);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long reserve() {
+        lock.lock();
+        try {
+            refill();
+            tokens -= 1;
+            return tokens >= 0 ? 0 : (long) (-tokens / rate * 1e9);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            tokens += 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefillNanos) / 1e9 * rate);
+        lastRefillNanos = now;
+    }
+
+    private double currentRate() {
+        lock.lock();
+        try {
+            return rate;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Distinct type so callers can back off on local throttling without matching messages
+    public static class RateLimitExceededException extends RuntimeException {
+        public RateLimitExceededException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.fitness.aiservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+/**
+ * Content-addressed cache of raw Gemini responses, keyed by a hash of the rendered prompt
+ * and generation config. An in-process LRU tier sits in front of an optional Redis tier.
+ */
+@Component
+@Slf4j
+public class GeminiResponseCache {
+
+    private static final String REDIS_KEY_PREFIX = "gemini:response:";
+
+    private final boolean enabled;
+    private final Duration ttl;
+    private final Cache<String, String> localCache;
+    private final StringRedisTemplate redisTemplate;
+    private final Counter redisHits;
+    private final Counter redisMisses;
+
+    public GeminiResponseCache(MeterRegistry meterRegistry,
+                               ObjectProvider<StringRedisTemplate> redisTemplateProvider,
+                               @Value("${gemini.cache.enabled:true}") boolean enabled,
+                               @Value("${gemini.cache.max-size:1000}") long maxSize,
+                               @Value("${gemini.cache.ttl:1h}") Duration ttl,
+                               @Value("${gemini.cache.redis.enabled:false}") boolean redisEnabled) {
+        this.enabled = enabled;
+        this.ttl = ttl;
+        this.localCache = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build(), "geminiResponses");
+        this.redisTemplate = redisEnabled ? redisTemplateProvider.getIfAvailable() : null;
+        this.redisHits = Counter.builder("gemini.cache.redis")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.redisMisses = Counter.builder("gemini.cache.redis")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    public Mono<String> getOrComputeAsync(String key, Supplier<Mono<String>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+
+        String cached = localCache.getIfPresent(key);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+
+        // The Redis client blocks, so its lookups and writes run on the bounded elastic scheduler
+        Mono<String> remote = redisTemplate == null
+                ? Mono.empty()
+                : Mono.fromCallable(() -> readRedis(key)).subscribeOn(Schedulers.boundedElastic());
+
+        return remote
+                .doOnNext(value -> localCache.put(key, value))
+                .switchIfEmpty(Mono.defer(loader).doOnNext(response -> {
+                    localCache.put(key, response);
+                    if (redisTemplate != null) {
+                        Schedulers.boundedElastic().schedule(() -> writeRedis(key, response));
+                    }
+                }));
+    }
+
+    public static String keyFor(String... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : parts) {
+                digest.update(part.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // The Redis tier is best effort: an unreachable Redis degrades to the local tier only
+    private String readRedis(String key) {
+        if (redisTemplate == null) {
+            return null;
+        }
+        try {
+            String value = redisTemplate.opsForValue().get(REDIS_KEY_PREFIX + key);
+            (value != null ? redisHits : redisMisses).increment();
+            return value;
+        } catch (Exception e) {
+            log.warn("Redis lookup failed for Gemini response cache: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeRedis(String key, String value) {
+        if (redisTemplate == null) {
+            return;
+        }
+        try {
+            redisTemplate.opsForValue().set(REDIS_KEY_PREFIX + key, value, ttl);
+        } catch (Exception e) {
+            log.warn("Redis write failed for Gemini response cache: {}", e.getMessage());
+        }
+    }
+}
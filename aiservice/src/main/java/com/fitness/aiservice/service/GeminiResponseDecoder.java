@@ -0,0 +1,101 @@
+package com.fitness.aiservice.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Decodes Gemini generateContent envelopes in a single pass: the parser walks straight to
+ * {@code candidates[0].content.parts[0].text}, skipping everything else without building a
+ * tree, and the embedded JSON is bound directly to the requested type.
+ */
+@Component
+public class GeminiResponseDecoder {
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
+    private static final String FENCE = "```";
+
+    private final ObjectMapper objectMapper;
+
+    public GeminiResponseDecoder(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public <T> T decode(String envelope, Class<T> type) {
+        try {
+            return objectMapper.readValue(extractJson(envelope), type);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to parse AI response", e);
+        }
+    }
+
+    public Map<String, Object> decodeMap(String envelope) {
+        try {
+            return objectMapper.readValue(extractJson(envelope), MAP_TYPE);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to parse AI response", e);
+        }
+    }
+
+    /**
+     * Returns the generated text of the first candidate, or null when the envelope has none
+     * (e.g. a streaming chunk that only carries usage metadata).
+     */
+    public String extractText(String envelope) {
+        try (JsonParser parser = objectMapper.getFactory().createParser(envelope)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT
+                    || !enterField(parser, "candidates", JsonToken.START_ARRAY)
+                    || parser.nextToken() != JsonToken.START_OBJECT
+                    || !enterField(parser, "content", JsonToken.START_OBJECT)
+                    || !enterField(parser, "parts", JsonToken.START_ARRAY)
+                    || parser.nextToken() != JsonToken.START_OBJECT
+                    || !enterField(parser, "text", JsonToken.VALUE_STRING)) {
+                return null;
+            }
+            return parser.getText();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to parse AI response", e);
+        }
+    }
+
+    public String extractJson(String envelope) {
+        String text = extractText(envelope);
+        if (text == null) {
+            throw new RuntimeException("AI response contained no generated text");
+        }
+        return stripFences(text);
+    }
+
+    /**
+     * Removes a surrounding Markdown code fence (with or without a language tag).
+     */
+    static String stripFences(String text) {
+        String content = text.strip();
+        if (content.startsWith(FENCE)) {
+            int firstLineEnd = content.indexOf('\n');
+            content = firstLineEnd < 0 ? content.substring(FENCE.length()) : content.substring(firstLineEnd + 1);
+        }
+        if (content.endsWith(FENCE)) {
+            content = content.substring(0, content.length() - FENCE.length());
+        }
+        return content.strip();
+    }
+
+    // Advances within the current object to the named field, leaving the parser on its value
+    private static boolean enterField(JsonParser parser, String name, JsonToken expected) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (name.equals(field)) {
+                return value == expected;
+            }
+            parser.skipChildren();
+        }
+        return false;
+    }
+}
@@ -1,22 +1,39 @@
 package com.fitness.aiservice.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 @Service
 @Slf4j
 public class GeminiService {
 
     private final WebClient webClient;
-    private final ObjectMapper objectMapper;
+    private final GeminiResponseDecoder responseDecoder;
+    private final GeminiResponseCache responseCache;
+    private final GeminiRateLimiter rateLimiter;
+    private final CircuitBreaker geminiCircuitBreaker;
+    private final Bulkhead geminiBulkhead;
+    private final Map<String, Mono<String>> inFlight = new ConcurrentHashMap<>();
 
     @Value("${gemini.api.url}")
     private String geminiApiUrl;
@@ -24,60 +41,138 @@ public class GeminiService {
     @Value("${gemini.api.key}")
     private String geminiApiKey;
 
-    public GeminiService(WebClient.Builder webClientBuilder) {
-        this.webClient = webClientBuilder.build();
-        this.objectMapper = new ObjectMapper();
+    @Value("${gemini.api.stream-url:}")
+    private String geminiStreamUrl;
+
+    @Value("${gemini.rate-limit.max-retries:2}")
+    private int maxThrottleRetries;
+
+    private static final Map<String, Object> GENERATION_CONFIG = Map.of(
+            "temperature", 0.7,
+            "topK", 40,
+            "topP", 0.95,
+            "maxOutputTokens", 2048
+    );
+
+    // Sorted rendering of GENERATION_CONFIG so cache keys are stable across JVMs
+    private static final String GENERATION_CONFIG_KEY = new TreeMap<>(GENERATION_CONFIG).toString();
+
+    public GeminiService(WebClient geminiWebClient, GeminiResponseCache responseCache,
+                         GeminiRateLimiter rateLimiter, GeminiResponseDecoder responseDecoder,
+                         CircuitBreaker geminiCircuitBreaker, Bulkhead geminiBulkhead) {
+        this.webClient = geminiWebClient;
+        this.responseDecoder = responseDecoder;
+        this.responseCache = responseCache;
+        this.rateLimiter = rateLimiter;
+        this.geminiCircuitBreaker = geminiCircuitBreaker;
+        this.geminiBulkhead = geminiBulkhead;
     }
 
     public String getAnswer(String question) {
-        Map<String, Object> requestBody = Map.of(
+        return getAnswerAsync(question).block();
+    }
+
+    public Mono<String> getAnswerAsync(String question) {
+        String cacheKey = GeminiResponseCache.keyFor(question, GENERATION_CONFIG_KEY);
+        return responseCache.getOrComputeAsync(cacheKey, () -> coalesce(cacheKey, () -> callGemini(question)));
+    }
+
+    // Concurrent requests for the same prompt share one upstream call, which is cancelled
+    // once every caller has cancelled (e.g. all of them timed out)
+    private Mono<String> coalesce(String key, Supplier<Mono<String>> call) {
+        return inFlight.computeIfAbsent(key, k -> call.get()
+                .doFinally(signal -> inFlight.remove(k))
+                .flux()
+                .publish()
+                .refCount()
+                .next());
+    }
+
+    /**
+     * Streams the generated text through streamGenerateContent, emitting each text chunk
+     * as Gemini produces it. Streamed responses bypass the response cache.
+     */
+    public Flux<String> streamAnswer(String question) {
+        return rateLimiter.acquire()
+                .thenMany(Flux.defer(() -> webClient.post()
+                        .uri(streamUrl() + "?alt=sse&key=" + geminiApiKey)
+                        .header("Content-Type", "application/json")
+                        .bodyValue(requestBody(question))
+                        .retrieve()
+                        .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<String>>() {})
+                        .transformDeferred(BulkheadOperator.of(geminiBulkhead))
+                        .transformDeferred(CircuitBreakerOperator.of(geminiCircuitBreaker))))
+                .doOnComplete(rateLimiter::onSuccess)
+                .doOnError(WebClientResponseException.TooManyRequests.class, this::recordThrottle)
+                .mapNotNull(ServerSentEvent::data)
+                .mapNotNull(this::extractChunkText);
+    }
+
+    private Mono<String> callGemini(String question) {
+        return Mono.defer(() -> rateLimiter.acquire()
+                        .then(webClient.post()
+                                .uri(geminiApiUrl + "?key=" + geminiApiKey)
+                                .header("Content-Type", "application/json")
+                                .bodyValue(requestBody(question))
+                                .retrieve()
+                                .bodyToMono(String.class)
+                                .transformDeferred(BulkheadOperator.of(geminiBulkhead))
+                                .transformDeferred(CircuitBreakerOperator.of(geminiCircuitBreaker))))
+                .doOnSuccess(response -> rateLimiter.onSuccess())
+                .doOnError(WebClientResponseException.TooManyRequests.class, this::recordThrottle)
+                .retryWhen(Retry.max(maxThrottleRetries)
+                        .filter(WebClientResponseException.TooManyRequests.class::isInstance));
+    }
+
+    private void recordThrottle(WebClientResponseException.TooManyRequests e) {
+        Duration retryAfter = null;
+        String header = e.getHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+        if (header != null) {
+            try {
+                retryAfter = Duration.ofSeconds(Long.parseLong(header.trim()));
+            } catch (NumberFormatException ignored) {
+                // HTTP-date form is not used by Gemini; fall back to the rate cut alone
+            }
+        }
+        rateLimiter.onThrottled(retryAfter);
+    }
+
+    private Map<String, Object> requestBody(String question) {
+        return Map.of(
                 "contents", new Object[] {
                         Map.of("parts", new Object[]{
                                 Map.of("text", question)
                         })
                 },
-                "generationConfig", Map.of(
-                        "temperature", 0.7,
-                        "topK", 40,
-                        "topP", 0.95,
-                        "maxOutputTokens", 2048
-                )
+                "generationConfig", GENERATION_CONFIG
         );
+    }
 
-        return webClient.post()
-                .uri(geminiApiUrl + "?key=" + geminiApiKey)
-                .header("Content-Type", "application/json")
-                .bodyValue(requestBody)
-                .retrieve()
-                .bodyToMono(String.class)
-                .block();
+    private String streamUrl() {
+        if (geminiStreamUrl != null && !geminiStreamUrl.isEmpty()) {
+            return geminiStreamUrl;
+        }
+        return geminiApiUrl.replace(":generateContent", ":streamGenerateContent");
     }
 
-    public JsonNode getStructuredResponse(String prompt) {
+    private String extractChunkText(String chunk) {
         try {
-            String response = getAnswer(prompt);
-            JsonNode rootNode = objectMapper.readTree(response);
-            
-            JsonNode textNode = rootNode.path("candidates")
-                    .get(0)
-                    .path("content")
-                    .path("parts")
-                    .get(0)
-                    .path("text");
-
-            String jsonContent = textNode.asText()
-                    .replaceAll("```json\\n","")
-                    .replaceAll("\\n```", "")
-                    .trim();
-
-            return objectMapper.readTree(jsonContent);
+            return responseDecoder.extractText(chunk);
         } catch (Exception e) {
-            log.error("Error parsing AI response: ", e);
-            throw new RuntimeException("Failed to parse AI response", e);
+            log.warn("Skipping unreadable Gemini stream chunk: {}", e.getMessage());
+            return null;
         }
     }
 
+    public <T> T getStructuredResponse(String prompt, Class<T> type) {
+        return responseDecoder.decode(getAnswer(prompt), type);
+    }
+
     public String generateWorkoutPlan(String userProfile, String goals, String fitnessLevel) {
+        return getAnswer(workoutPlanPrompt(userProfile, goals, fitnessLevel));
+    }
+
+    public String workoutPlanPrompt(String userProfile, String goals, String fitnessLevel) {
         String prompt = String.format("""
         Create a personalized 7-day workout plan in JSON format:
         {
@@ -117,10 +212,14 @@ public class GeminiService {
         Provide a realistic, progressive plan that matches their fitness level and goals.
         """, userProfile, goals, fitnessLevel);
 
-        return getAnswer(prompt);
+        return prompt;
     }
 
     public String generateNutritionAdvice(String activityType, int caloriesBurned, String dietaryRestrictions) {
+        return getAnswer(nutritionAdvicePrompt(activityType, caloriesBurned, dietaryRestrictions));
+    }
+
+    public String nutritionAdvicePrompt(String activityType, int caloriesBurned, String dietaryRestrictions) {
         String prompt = String.format("""
         Provide personalized nutrition advice in JSON format:
         {
@@ -153,10 +252,14 @@ public class GeminiService {
         Provide practical, science-based nutrition advice.
         """, activityType, caloriesBurned, dietaryRestrictions);
 
-        return getAnswer(prompt);
+        return prompt;
     }
 
     public String analyzeProgress(List<Map<String, Object>> activities) {
+        return getAnswer(progressAnalysisPrompt(activities));
+    }
+
+    public String progressAnalysisPrompt(List<Map<String, Object>> activities) {
         String activitiesJson = activities.toString();
         String prompt = String.format("""
         Analyze fitness progress and provide insights in JSON format:
@@ -193,10 +296,14 @@ public class GeminiService {
         Analyze patterns, progress, and provide actionable insights.
         """, activitiesJson);
 
-        return getAnswer(prompt);
+        return prompt;
     }
 
     public String generateMotivationalMessage(String userMood, String recentActivity, String goals) {
+        return getAnswer(motivationalMessagePrompt(userMood, recentActivity, goals));
+    }
+
+    public String motivationalMessagePrompt(String userMood, String recentActivity, String goals) {
         String prompt = String.format("""
         Generate a personalized motivational message in JSON format:
         {
@@ -216,10 +323,14 @@ public class GeminiService {
         Provide uplifting, personalized motivation that resonates with their situation.
         """, userMood, recentActivity, goals);
 
-        return getAnswer(prompt);
+        return prompt;
     }
 
     public String generateInjuryPreventionAdvice(String activityType, String userAge, String fitnessLevel) {
+        return getAnswer(injuryPreventionPrompt(activityType, userAge, fitnessLevel));
+    }
+
+    public String injuryPreventionPrompt(String activityType, String userAge, String fitnessLevel) {
         String prompt = String.format("""
         Provide injury prevention advice in JSON format:
         {
@@ -253,10 +364,14 @@ public class GeminiService {
         Provide comprehensive injury prevention guidance.
         """, activityType, userAge, fitnessLevel);
 
-        return getAnswer(prompt);
+        return prompt;
     }
 
     public String generateSocialFeatures(String activityType, String location, String goals) {
+        return getAnswer(socialFeaturesPrompt(activityType, location, goals));
+    }
+
+    public String socialFeaturesPrompt(String activityType, String location, String goals) {
         String prompt = String.format("""
         Suggest social fitness features in JSON format:
         {
@@ -296,6 +411,6 @@ public class GeminiService {
         Suggest engaging social fitness opportunities.
         """, activityType, location, goals);
 
-        return getAnswer(prompt);
+        return prompt;
     }
 }
@@ -1,8 +1,11 @@
 package com.fitness.aiservice.service;
 
+import com.fitness.aiservice.dto.RecommendationSummary;
 import com.fitness.aiservice.model.Recommendation;
 import com.fitness.aiservice.repository.RecommendationRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -16,6 +19,13 @@ public class RecommendationService {
         return recommendationRepository.findByUserId(userId);
     }
 
+    // Newest first, served by the userId+createdAt index
+    public List<RecommendationSummary> getUserRecommendationSummaries(String userId, int page, int size) {
+        PageRequest pageRequest = PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), 100),
+                Sort.by(Sort.Direction.DESC, "createdAt"));
+        return recommendationRepository.findSummariesByUserId(userId, pageRequest);
+    }
+
     public Recommendation getActivityRecommendation(String activityId) {
         return recommendationRepository.findByActivityId(activityId)
                 .orElseThrow(() -> new RuntimeException("No recommendation found for this activity: " + activityId));
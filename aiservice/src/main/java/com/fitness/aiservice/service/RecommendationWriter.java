@@ -0,0 +1,159 @@
+package com.fitness.aiservice.service;
+
+import com.fitness.aiservice.model.Recommendation;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Buffers recommendations from all listener consumers and stores them with one unordered bulk
+ * write once flush-size documents are waiting or flush-interval has passed. Each document is
+ * upserted on activityId, so a redelivered activity replaces its recommendation instead of
+ * adding a second one. Callers get a
+ * future that completes only after their documents are written, so they can hold back the
+ * RabbitMQ acknowledgement until then. After each write a recommendation-stored event per user
+ * tells the gateway to drop that user's cached responses.
+ */
+@Component
+@Slf4j
+public class RecommendationWriter {
+
+    private record PendingWrite(List<Recommendation> recommendations, CompletableFuture<Void> written) {}
+
+    private final MongoTemplate mongoTemplate;
+    private final RabbitTemplate rabbitTemplate;
+    private final DistributionSummary flushSize;
+    private final Timer flushTimer;
+    private final ReentrantLock lock = new ReentrantLock();
+    private List<PendingWrite> buffer = new ArrayList<>();
+    private int buffered;
+
+    @Value("${recommendation.writer.flush-size:50}")
+    private int maxBuffered;
+
+    @Value("${rabbitmq.exchange.name}")
+    private String exchange;
+
+    @Value("${rabbitmq.routing.recommendation-stored-key}")
+    private String recommendationStoredKey;
+
+    public RecommendationWriter(MongoTemplate mongoTemplate, RabbitTemplate rabbitTemplate, MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.rabbitTemplate = rabbitTemplate;
+        this.flushSize = DistributionSummary.builder("recommendation.writer.flush.size")
+                .description("Recommendations stored per bulk write")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("recommendation.writer.flush")
+                .description("Time spent in recommendation bulk writes")
+                .register(meterRegistry);
+    }
+
+    public CompletableFuture<Void> write(List<Recommendation> recommendations) {
+        if (recommendations.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        PendingWrite pending = new PendingWrite(recommendations, new CompletableFuture<>());
+        boolean full;
+        lock.lock();
+        try {
+            buffer.add(pending);
+            buffered += recommendations.size();
+            full = buffered >= maxBuffered;
+        } finally {
+            lock.unlock();
+        }
+
+        if (full) {
+            flush();
+        }
+        return pending.written();
+    }
+
+    /**
+     * For callers that block on the result: adds the recommendations and flushes right away,
+     * taking along whatever other consumers have buffered, instead of waiting for the
+     * flush-size threshold or the next scheduled flush.
+     */
+    public CompletableFuture<Void> writeAndFlush(List<Recommendation> recommendations) {
+        CompletableFuture<Void> written = write(recommendations);
+        if (!written.isDone()) {
+            flush();
+        }
+        return written;
+    }
+
+    @Scheduled(fixedDelayString = "${recommendation.writer.flush-interval-ms:500}")
+    public void flush() {
+        List<PendingWrite> batch;
+        lock.lock();
+        try {
+            if (buffer.isEmpty()) {
+                return;
+            }
+            batch = buffer;
+            buffer = new ArrayList<>();
+            buffered = 0;
+        } finally {
+            lock.unlock();
+        }
+
+        List<Recommendation> documents = new ArrayList<>();
+        batch.forEach(pending -> documents.addAll(pending.recommendations()));
+        try {
+            flushTimer.record(() -> {
+                BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Recommendation.class);
+                documents.forEach(recommendation -> bulkOps.replaceOne(
+                        Query.query(Criteria.where("activityId").is(recommendation.getActivityId())),
+                        recommendation,
+                        FindAndReplaceOptions.options().upsert()));
+                bulkOps.execute();
+            });
+            flushSize.record(documents.size());
+            batch.forEach(pending -> pending.written().complete(null));
+        } catch (RuntimeException e) {
+            log.error("Bulk write of {} recommendations failed: ", documents.size(), e);
+            batch.forEach(pending -> pending.written().completeExceptionally(e));
+            return;
+        }
+        publishStored(documents);
+    }
+
+    // Best effort: a lost event only leaves the gateway serving the old response until its TTL
+    private void publishStored(List<Recommendation> documents) {
+        documents.stream()
+                .map(Recommendation::getUserId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .forEach(userId -> {
+                    try {
+                        rabbitTemplate.convertAndSend(exchange, recommendationStoredKey, Map.of("userId", userId));
+                    } catch (RuntimeException e) {
+                        log.warn("Could not publish recommendation-stored event for user {}: {}", userId, e.getMessage());
+                    }
+                });
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
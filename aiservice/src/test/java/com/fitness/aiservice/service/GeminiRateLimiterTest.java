@@ -0,0 +1,93 @@
+package com.fitness.aiservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeminiRateLimiterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void grantsBurstWithoutWaiting() {
+        GeminiRateLimiter limiter = limiter(0.1, 0.1, 3, Duration.ofSeconds(1));
+
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire().block(Duration.ofMillis(100));
+        }
+    }
+
+    @Test
+    void rejectsWhenWaitWouldExceedMaxWait() {
+        // Once the single token is spent the next one is 10s away, past the 1s max wait
+        GeminiRateLimiter limiter = limiter(0.1, 0.1, 1, Duration.ofSeconds(1));
+        limiter.acquire().block(Duration.ofMillis(100));
+
+        assertThrows(GeminiRateLimiter.RateLimitExceededException.class,
+                () -> limiter.acquire().block(Duration.ofMillis(100)));
+    }
+
+    @Test
+    void rejectedCallDoesNotKeepItsReservation() {
+        GeminiRateLimiter limiter = limiter(0.1, 0.1, 1, Duration.ofSeconds(1));
+        limiter.acquire().block(Duration.ofMillis(100));
+
+        for (int i = 0; i < 3; i++) {
+            String message = assertThrows(GeminiRateLimiter.RateLimitExceededException.class,
+                    () -> limiter.acquire().block(Duration.ofMillis(100))).getMessage();
+            // Each rejection reports the same ~10s wait instead of stacking deficits (20s, 30s, ...)
+            long waitSeconds = Long.parseLong(message.replaceAll("\\D", ""));
+            assertTrue(waitSeconds <= 10, message);
+        }
+    }
+
+    @Test
+    void halvesRateWhenThrottledDownToMinimum() {
+        GeminiRateLimiter limiter = limiter(0.5, 2.0, 5, Duration.ofSeconds(30));
+
+        limiter.onThrottled(null);
+        assertEquals(1.0, rate());
+        limiter.onThrottled(null);
+        assertEquals(0.5, rate());
+        limiter.onThrottled(null);
+        assertEquals(0.5, rate());
+        assertEquals(3.0, meterRegistry.get("gemini.rate-limit.throttled").counter().count());
+    }
+
+    @Test
+    void raisesRateOnSuccessUpToMaximum() {
+        GeminiRateLimiter limiter = limiter(0.5, 2.0, 5, Duration.ofSeconds(30));
+        limiter.onThrottled(null);
+
+        limiter.onSuccess();
+        assertEquals(1.5, rate(), 1e-9);
+        for (int i = 0; i < 10; i++) {
+            limiter.onSuccess();
+        }
+        assertEquals(2.0, rate());
+    }
+
+    @Test
+    void honoursRetryAfterBeforeNextCall() {
+        GeminiRateLimiter limiter = limiter(0.1, 2.0, 5, Duration.ofSeconds(1));
+
+        // A 60s Retry-After pushes the bucket far enough into deficit that any call must wait past max wait
+        limiter.onThrottled(Duration.ofSeconds(60));
+
+        assertThrows(GeminiRateLimiter.RateLimitExceededException.class,
+                () -> limiter.acquire().block(Duration.ofMillis(100)));
+    }
+
+    private GeminiRateLimiter limiter(double minRate, double maxRate, double burst, Duration maxWait) {
+        return new GeminiRateLimiter(meterRegistry, minRate, maxRate, 0.5, burst, maxWait);
+    }
+
+    private double rate() {
+        return meterRegistry.get("gemini.rate-limit.rate").gauge().value();
+    }
+}
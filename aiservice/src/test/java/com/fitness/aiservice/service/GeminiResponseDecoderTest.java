@@ -0,0 +1,81 @@
+package com.fitness.aiservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GeminiResponseDecoderTest {
+
+    private final GeminiResponseDecoder decoder = new GeminiResponseDecoder(new ObjectMapper());
+
+    @Test
+    void extractsFirstCandidateTextSkippingOtherFields() {
+        String envelope = """
+                {
+                  "usageMetadata": {"promptTokenCount": 12, "details": [{"modality": "TEXT"}]},
+                  "candidates": [
+                    {
+                      "finishReason": "STOP",
+                      "content": {
+                        "role": "model",
+                        "parts": [{"thought": false, "text": "first"}, {"text": "second"}]
+                      }
+                    },
+                    {"content": {"parts": [{"text": "other candidate"}]}}
+                  ]
+                }
+                """;
+
+        assertEquals("first", decoder.extractText(envelope));
+    }
+
+    @Test
+    void returnsNullForChunkWithoutCandidates() {
+        assertNull(decoder.extractText("{\"usageMetadata\": {\"totalTokenCount\": 40}}"));
+    }
+
+    @Test
+    void returnsNullWhenPartHasNoText() {
+        assertNull(decoder.extractText("{\"candidates\": [{\"content\": {\"parts\": [{\"inlineData\": {}}]}}]}"));
+    }
+
+    @Test
+    void failsOnMalformedEnvelope() {
+        assertThrows(RuntimeException.class, () -> decoder.extractText("{\"candidates\": [{"));
+    }
+
+    @Test
+    void stripsFenceWithLanguageTag() {
+        assertEquals("{\"a\": 1}", GeminiResponseDecoder.stripFences("```json\n{\"a\": 1}\n```"));
+    }
+
+    @Test
+    void stripsFenceWithoutLanguageTag() {
+        assertEquals("{\"a\": 1}", GeminiResponseDecoder.stripFences("  ```\n{\"a\": 1}\n```  \n"));
+    }
+
+    @Test
+    void leavesUnfencedTextAlone() {
+        assertEquals("{\"a\": \"`code`\"}", GeminiResponseDecoder.stripFences(" {\"a\": \"`code`\"} "));
+    }
+
+    @Test
+    void decodesFencedJsonFromEnvelope() {
+        String envelope = "{\"candidates\": [{\"content\": {\"parts\": [{\"text\": "
+                + "\"```json\\n{\\\"plan\\\": {\\\"name\\\": \\\"Base\\\"}}\\n```\"}]}}]}";
+
+        Map<String, Object> decoded = decoder.decodeMap(envelope);
+
+        assertEquals(Map.of("plan", Map.of("name", "Base")), decoded);
+    }
+
+    @Test
+    void failsWhenEnvelopeHasNoGeneratedText() {
+        assertThrows(RuntimeException.class, () -> decoder.extractJson("{\"candidates\": []}"));
+    }
+}
@@ -0,0 +1,24 @@
+package com.fitness.common.virtualthreads;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+
+import java.time.Duration;
+
+/**
+ * The JFR stream costs a recording thread and event buffers in every instance, so the monitor
+ * is opt-in: it needs virtual threads and virtual-threads.pinning.monitor.enabled=true.
+ */
+@AutoConfiguration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadPinningAutoConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(name = "virtual-threads.pinning.monitor.enabled", havingValue = "true")
+    public VirtualThreadPinningMonitor virtualThreadPinningMonitor(
+            @Value("${virtual-threads.pinning.threshold:20ms}") Duration threshold) {
+        return new VirtualThreadPinningMonitor(threshold);
+    }
+}
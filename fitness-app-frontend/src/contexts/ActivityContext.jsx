@@ -16,6 +16,8 @@ export const useActivity = () => {
 export const ActivityProvider = ({ children }) => {
   const [activities, setActivities] = useState([])
   const [loading, setLoading] = useState(false)
+  const [nextCursor, setNextCursor] = useState(null)
+  const [loadingMore, setLoadingMore] = useState(false)
   const [stats, setStats] = useState(null)
   const { user } = useAuth()
 
@@ -24,8 +26,9 @@ export const ActivityProvider = ({ children }) => {
     
     setLoading(true)
     try {
-      const data = await activityService.getUserActivities()
-      setActivities(data)
+      const data = await activityService.getUserActivitiesPage()
+      setActivities(data.activities)
+      setNextCursor(data.nextCursor)
     } catch (error) {
       toast.error('Failed to fetch activities')
       console.error('Error fetching activities:', error)
@@ -34,6 +37,22 @@ export const ActivityProvider = ({ children }) => {
     }
   }
 
+  const loadMoreActivities = async () => {
+    if (!user || !nextCursor || loadingMore) return
+
+    setLoadingMore(true)
+    try {
+      const data = await activityService.getUserActivitiesPage({}, nextCursor)
+      setActivities(prev => [...prev, ...data.activities])
+      setNextCursor(data.nextCursor)
+    } catch (error) {
+      toast.error('Failed to fetch more activities')
+      console.error('Error fetching more activities:', error)
+    } finally {
+      setLoadingMore(false)
+    }
+  }
+
   const addActivity = async (activityData) => {
     if (!user) return
     
@@ -101,7 +120,10 @@ export const ActivityProvider = ({ children }) => {
     activities,
     stats,
     loading,
+    loadingMore,
+    hasMoreActivities: nextCursor !== null,
     fetchActivities,
+    loadMoreActivities,
     addActivity,
     updateActivity,
     deleteActivity,
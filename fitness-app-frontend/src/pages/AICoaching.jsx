@@ -25,6 +25,8 @@ const AICoaching = () => {
   const [injuryPrevention, setInjuryPrevention] = useState(null)
   const [socialFeatures, setSocialFeatures] = useState(null)
   const [expandedSections, setExpandedSections] = useState({})
+  const [streamingText, setStreamingText] = useState('')
+  const [unparsedText, setUnparsedText] = useState('')
 
   const tabs = [
     { id: 'workout', name: 'Workout Plan', icon: Dumbbell },
@@ -42,13 +44,38 @@ const AICoaching = () => {
     }))
   }
 
+  // Streams a section so text renders as it is generated, then parses the finished JSON.
+  // Only a failed stream falls back to the regular endpoint; streamed text that is not valid
+  // JSON stays on screen as generated instead of paying for a second generation.
+  const streamSection = async (section, body, fallback) => {
+    setStreamingText('')
+    setUnparsedText('')
+    let text
+    try {
+      text = await recommendationService.streamCoachingSection(section, body, setStreamingText)
+    } catch (error) {
+      console.error(`Streaming ${section} failed, falling back:`, error)
+      return fallback()
+    } finally {
+      setStreamingText('')
+    }
+    try {
+      return JSON.parse(text.replace(/```json\s*/g, '').replace(/```/g, '').trim())
+    } catch (error) {
+      console.error(`Streamed ${section} is not valid JSON:`, error)
+      setUnparsedText(text)
+      throw error
+    }
+  }
+
   const generateWorkoutPlan = async () => {
     setLoading(true)
     try {
-      const plan = await recommendationService.generateWorkoutPlan(
-        'Active individual looking to improve fitness',
-        'Build strength and improve cardiovascular health',
-        'Intermediate'
+      const userProfile = 'Active individual looking to improve fitness'
+      const goals = 'Build strength and improve cardiovascular health'
+      const fitnessLevel = 'Intermediate'
+      const plan = await streamSection('workout-plan', { userProfile, goals, fitnessLevel }, () =>
+        recommendationService.generateWorkoutPlan(userProfile, goals, fitnessLevel)
       )
       setWorkoutPlan(plan)
       toast.success('Workout plan generated!')
@@ -62,10 +89,11 @@ const AICoaching = () => {
   const generateNutritionAdvice = async () => {
     setLoading(true)
     try {
-      const advice = await recommendationService.generateNutritionAdvice(
-        'Mixed activities',
-        500,
-        'None'
+      const activityType = 'Mixed activities'
+      const caloriesBurned = 500
+      const dietaryRestrictions = 'None'
+      const advice = await streamSection('nutrition-advice', { activityType, caloriesBurned, dietaryRestrictions }, () =>
+        recommendationService.generateNutritionAdvice(activityType, caloriesBurned, dietaryRestrictions)
       )
       setNutritionAdvice(advice)
       toast.success('Nutrition advice generated!')
@@ -79,11 +107,14 @@ const AICoaching = () => {
   const analyzeProgress = async () => {
     setLoading(true)
     try {
-      const analysis = await recommendationService.analyzeProgress([
+      const activities = [
         { type: 'RUNNING', duration: 30, caloriesBurned: 300 },
         { type: 'STRENGTH', duration: 45, caloriesBurned: 250 },
         { type: 'YOGA', duration: 60, caloriesBurned: 200 }
-      ])
+      ]
+      const analysis = await streamSection('progress-analysis', { activities }, () =>
+        recommendationService.analyzeProgress(activities)
+      )
       setProgressAnalysis(analysis)
       toast.success('Progress analysis completed!')
     } catch (error) {
@@ -96,10 +127,11 @@ const AICoaching = () => {
   const generateMotivation = async () => {
     setLoading(true)
     try {
-      const motivational = await recommendationService.generateMotivationalMessage(
-        'Motivated',
-        'Recent workout session',
-        'Improve overall fitness'
+      const userMood = 'Motivated'
+      const recentActivity = 'Recent workout session'
+      const goals = 'Improve overall fitness'
+      const motivational = await streamSection('motivation', { userMood, recentActivity, goals }, () =>
+        recommendationService.generateMotivationalMessage(userMood, recentActivity, goals)
       )
       setMotivation(motivational)
       toast.success('Motivational message generated!')
@@ -113,10 +145,11 @@ const AICoaching = () => {
   const generateInjuryPrevention = async () => {
     setLoading(true)
     try {
-      const prevention = await recommendationService.generateInjuryPreventionAdvice(
-        'Mixed activities',
-        '25-35',
-        'Intermediate'
+      const activityType = 'Mixed activities'
+      const userAge = '25-35'
+      const fitnessLevel = 'Intermediate'
+      const prevention = await streamSection('injury-prevention', { activityType, userAge, fitnessLevel }, () =>
+        recommendationService.generateInjuryPreventionAdvice(activityType, userAge, fitnessLevel)
       )
       setInjuryPrevention(prevention)
       toast.success('Injury prevention advice generated!')
@@ -130,10 +163,11 @@ const AICoaching = () => {
   const generateSocialFeatures = async () => {
     setLoading(true)
     try {
-      const social = await recommendationService.generateSocialFeatures(
-        'Mixed activities',
-        'Local area',
-        'Improve fitness and meet people'
+      const activityType = 'Mixed activities'
+      const location = 'Local area'
+      const goals = 'Improve fitness and meet people'
+      const social = await streamSection('social-features', { activityType, location, goals }, () =>
+        recommendationService.generateSocialFeatures(activityType, location, goals)
       )
       setSocialFeatures(social)
       toast.success('Social features generated!')
@@ -750,6 +784,23 @@ const AICoaching = () => {
 
       {/* Content */}
       <div className="min-h-[600px]">
+        {streamingText && (
+          <div className="card mb-6">
+            <div className="flex items-center text-sm text-purple-600 mb-2">
+              <Loader2 className="h-4 w-4 mr-2 animate-spin" />
+              Generating...
+            </div>
+            <pre className="whitespace-pre-wrap text-sm text-gray-600 max-h-64 overflow-y-auto">{streamingText}</pre>
+          </div>
+        )}
+        {unparsedText && !streamingText && (
+          <div className="card mb-6">
+            <div className="text-sm text-amber-600 mb-2">
+              The response could not be read as structured data, so it is shown as generated.
+            </div>
+            <pre className="whitespace-pre-wrap text-sm text-gray-600 max-h-64 overflow-y-auto">{unparsedText}</pre>
+          </div>
+        )}
         {renderContent()}
       </div>
     </div>
@@ -1,4 +1,4 @@
-import { useState, useEffect } from 'react'
+import { useState, useEffect, useRef } from 'react'
 import { 
   Activity, 
   Clock, 
@@ -14,7 +14,8 @@ import { format } from 'date-fns'
 import toast from 'react-hot-toast'
 
 const Activities = () => {
-  const { activities, loading, deleteActivity } = useActivity()
+  const { activities, loading, loadingMore, hasMoreActivities, loadMoreActivities, deleteActivity } = useActivity()
+  const loadMoreRef = useRef(null)
   const [searchTerm, setSearchTerm] = useState('')
   const [filterType, setFilterType] = useState('all')
   const [sortBy, setSortBy] = useState('date')
@@ -40,6 +41,20 @@ const Activities = () => {
       }
     })
 
+  // Infinite scroll: fetch the next cursor page when the sentinel below the list comes into view
+  useEffect(() => {
+    const sentinel = loadMoreRef.current
+    if (!sentinel || !hasMoreActivities) return
+
+    const observer = new IntersectionObserver((entries) => {
+      if (entries[0].isIntersecting) {
+        loadMoreActivities()
+      }
+    })
+    observer.observe(sentinel)
+    return () => observer.disconnect()
+  }, [hasMoreActivities, loadMoreActivities])
+
   const handleDelete = async (activityId) => {
     if (window.confirm('Are you sure you want to delete this activity?')) {
       try {
@@ -198,6 +213,13 @@ const Activities = () => {
             )}
           </div>
         )}
+        {hasMoreActivities && (
+          <div ref={loadMoreRef} className="flex justify-center py-4">
+            {loadingMore && (
+              <div className="animate-spin rounded-full h-6 w-6 border-b-2 border-primary-600"></div>
+            )}
+          </div>
+        )}
       </div>
 
       {/* Summary */}
@@ -47,6 +47,18 @@ export const activityService = {
     return api.get(`/activities?${params.toString()}`)
   },
 
+  // Get one cursor page of activities; pass the previous page's nextCursor as `after`
+  async getUserActivitiesPage(filters = {}, after = '') {
+    const params = new URLSearchParams()
+    if (filters.activityType) params.append('activityType', filters.activityType)
+    if (filters.startDate) params.append('startDate', filters.startDate)
+    if (filters.endDate) params.append('endDate', filters.endDate)
+    if (filters.size) params.append('size', filters.size)
+    params.append('after', after || '')
+
+    return api.get(`/activities?${params.toString()}`)
+  },
+
   // Get a specific activity by ID
   async getActivityById(activityId) {
     return api.get(`/activities/${activityId}`)
@@ -38,11 +38,11 @@ api.interceptors.response.use(
 )
 
 export const recommendationService = {
-  // Get user recommendations
-  async getUserRecommendations(userId) {
+  // Get a page of recommendation summaries, newest first
+  async getUserRecommendations(userId, page = 0, size = 20) {
     try {
-      const response = await axios.get(`${AI_BASE_URL}/recommendations/${userId}`)
-      return response.data
+      const id = userId || JSON.parse(localStorage.getItem('user'))?.id || 'user-123'
+      return await api.get(`/recommendations/user/${id}`, { params: { page, size } })
     } catch (error) {
       console.error('Error fetching recommendations:', error)
       throw error
@@ -60,30 +60,30 @@ export const recommendationService = {
     }
   },
 
-  // Generate personalized workout plan
+  // Generate personalized workout plan as a background job and wait for its result
   async generateWorkoutPlan(userProfile, goals, fitnessLevel) {
     try {
-      const response = await axios.post(`${AI_BASE_URL}/workout-plan`, {
+      const job = await this.submitCoachingJob('workout-plan', {
         userProfile,
         goals,
         fitnessLevel
       })
-      return response.data
+      return await this.waitForCoachingJob(job.id)
     } catch (error) {
       console.error('Error generating workout plan:', error)
       throw error
     }
   },
 
-  // Generate nutrition advice
+  // Generate nutrition advice as a background job and wait for its result
   async generateNutritionAdvice(activityType, caloriesBurned, dietaryRestrictions) {
     try {
-      const response = await axios.post(`${AI_BASE_URL}/nutrition-advice`, {
+      const job = await this.submitCoachingJob('nutrition-advice', {
         activityType,
         caloriesBurned,
         dietaryRestrictions
       })
-      return response.data
+      return await this.waitForCoachingJob(job.id)
     } catch (error) {
       console.error('Error generating nutrition advice:', error)
       throw error
@@ -148,6 +148,74 @@ export const recommendationService = {
     }
   },
 
+  // Submit a workout-plan or nutrition-advice job; the response carries the job id to poll
+  async submitCoachingJob(section, body) {
+    return api.post(`/recommendations/jobs/${section}`, body)
+  },
+
+  // Poll a coaching job until it completes or fails, giving up after maxAttempts polls
+  async waitForCoachingJob(jobId, intervalMs = 2000, maxAttempts = 60) {
+    for (let attempt = 0; attempt < maxAttempts; attempt++) {
+      const job = await api.get(`/recommendations/jobs/${jobId}`)
+      if (job.status === 'COMPLETED') return job.result
+      if (job.status === 'FAILED') throw new Error(job.error || 'Coaching job failed')
+      await new Promise((resolve) => setTimeout(resolve, intervalMs))
+    }
+    throw new Error(`Coaching job ${jobId} did not finish in time`)
+  },
+
+  // Stream a coaching section over server-sent events through the gateway; onText receives the
+  // text generated so far. fetch is used because axios cannot read a streamed response body.
+  async streamCoachingSection(section, body, onText) {
+    const headers = {
+      'Content-Type': 'application/json',
+      Accept: 'text/event-stream'
+    }
+    const token = localStorage.getItem('token')
+    if (token) {
+      headers.Authorization = `Bearer ${token}`
+      headers['X-User-ID'] = JSON.parse(localStorage.getItem('user'))?.id || 'user-123'
+    }
+    const response = await fetch(`${API_BASE_URL}/recommendations/stream/${section}`, {
+      method: 'POST',
+      headers,
+      body: JSON.stringify(body)
+    })
+    if (!response.ok || !response.body) {
+      throw new Error(`Streaming ${section} failed with status ${response.status}`)
+    }
+
+    const reader = response.body.getReader()
+    const decoder = new TextDecoder()
+    let buffer = ''
+    let text = ''
+    while (true) {
+      const { done, value } = await reader.read()
+      if (done) break
+      buffer += decoder.decode(value, { stream: true })
+
+      const events = buffer.split('\n\n')
+      buffer = events.pop()
+      for (const rawEvent of events) {
+        let eventName = 'message'
+        const dataLines = []
+        for (const line of rawEvent.split('\n')) {
+          if (line.startsWith('event:')) eventName = line.slice(6).trim()
+          else if (line.startsWith('data:')) dataLines.push(line.slice(5))
+        }
+        if (dataLines.length === 0) continue
+
+        const data = JSON.parse(dataLines.join('\n'))
+        if (eventName === 'error') throw new Error(data.text)
+        if (eventName === 'token') {
+          text += data.text
+          onText(text)
+        }
+      }
+    }
+    return text
+  },
+
   // Get personalized coaching
   async getPersonalizedCoaching(userId, recentActivities, currentGoals, fitnessLevel) {
     try {
@@ -2,77 +2,106 @@ package com.fitness.gateway;
 
 import com.fitness.gateway.user.RegisterRequest;
 import com.fitness.gateway.user.UserService;
-import com.nimbusds.jwt.JWTClaimsSet;
-import com.nimbusds.jwt.SignedJWT;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilter;
 import org.springframework.web.server.WebFilterChain;
 import reactor.core.publisher.Mono;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
 @Component
 @Slf4j
 @RequiredArgsConstructor
 public class KeycloakUserSyncFilter implements WebFilter {
     private final UserService userService;
+    private final Cache<String, Boolean> syncedUserCache;
+    private final Map<String, Mono<Void>> inFlightSyncs = new ConcurrentHashMap<>();
 
+    // Runs after the resource server has verified the bearer token, so its claims are reused as-is
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
-        String token = exchange.getRequest().getHeaders().getFirst("Authorization");
-        String userId = exchange.getRequest().getHeaders().getFirst("X-User-ID");
-        RegisterRequest registerRequest = getUserDetails(token);
+        return ReactiveSecurityContextHolder.getContext()
+                .mapNotNull(context -> context.getAuthentication() instanceof JwtAuthenticationToken authentication
+                        ? authentication.getToken()
+                        : null)
+                .flatMap(jwt -> syncedExchange(exchange, jwt))
+                .defaultIfEmpty(exchange)
+                .flatMap(chain::filter);
+    }
 
+    // The verified subject is the only identity forwarded; a client-supplied X-User-ID is replaced
+    private Mono<ServerWebExchange> syncedExchange(ServerWebExchange exchange, Jwt jwt) {
+        String userId = jwt.getSubject();
         if (userId == null) {
-            userId = registerRequest.getKeycloakId();
+            return Mono.just(exchange);
         }
 
-        if (userId != null && token != null){
-            String finalUserId = userId;
-            return userService.validateUser(userId)
-                    .flatMap(exist -> {
-                        if (!exist) {
-                            // Register User
+        return syncUser(userId, () -> toRegisterRequest(jwt))
+                .onErrorResume(this::isUserServiceDegraded, e -> {
+                    // Sync is retried on the next request; downstream services still validate the user
+                    log.warn("Skipping user sync for {}, USER-SERVICE unavailable: {}", userId, e.getMessage());
+                    return Mono.empty();
+                })
+                .then(Mono.fromSupplier(() -> {
+                    ServerHttpRequest mutatedRequest = exchange.getRequest().mutate()
+                            .headers(headers -> headers.set("X-User-ID", userId))
+                            .build();
+                    return exchange.mutate().request(mutatedRequest).build();
+                }));
+    }
 
-                            if (registerRequest != null) {
-                                return userService.registerUser(registerRequest)
-                                        .then(Mono.empty());
-                            } else {
-                                return Mono.empty();
-                            }
-                        } else {
-                            log.info("User already exist, Skipping sync.");
-                            return Mono.empty();
-                        }
-                    })
-                    .then(Mono.defer(() -> {
-                        ServerHttpRequest mutatedRequest = exchange.getRequest().mutate()
-                                .header("X-User-ID", finalUserId)
-                                .build();
-                        return chain.filter(exchange.mutate().request(mutatedRequest).build());
-                    }));
+    /**
+     * Makes sure the user exists in USER-SERVICE. Users synced recently are answered from the
+     * cache, and concurrent first requests for the same user share one validate/register call.
+     */
+    private Mono<Void> syncUser(String userId, Supplier<RegisterRequest> registerRequest) {
+        if (syncedUserCache.getIfPresent(userId) != null) {
+            return Mono.empty();
         }
-        return chain.filter(exchange);
+        return inFlightSyncs.computeIfAbsent(userId, id -> validateOrRegister(id, registerRequest)
+                .doFinally(signal -> inFlightSyncs.remove(id))
+                .cache());
     }
 
-    private RegisterRequest getUserDetails(String token) {
-        try {
-            String tokenWithoutBearer = token.replace("Bearer ", "").trim();
-            SignedJWT signedJWT = SignedJWT.parse(tokenWithoutBearer);
-            JWTClaimsSet claims = signedJWT.getJWTClaimsSet();
+    private Mono<Void> validateOrRegister(String userId, Supplier<RegisterRequest> registerRequest) {
+        return userService.validateUser(userId)
+                .flatMap(exist -> {
+                    if (exist) {
+                        log.info("User already exist, Skipping sync.");
+                        return Mono.just(true);
+                    }
+                    // Registration data is only assembled for users USER-SERVICE does not know yet
+                    return userService.registerUser(registerRequest.get()).thenReturn(true);
+                })
+                .doOnNext(synced -> syncedUserCache.put(userId, true))
+                .then();
+    }
 
-            RegisterRequest registerRequest = new RegisterRequest();
-            registerRequest.setEmail(claims.getStringClaim("email"));
-            registerRequest.setKeycloakId(claims.getStringClaim("sub"));
-            registerRequest.setPassword("dummy@123123");
-            registerRequest.setFirstName(claims.getStringClaim("given_name"));
-            registerRequest.setLastName(claims.getStringClaim("family_name"));
-            return registerRequest;
-        } catch (Exception e) {
-            e.printStackTrace();
-            return null;
-        }
+    private boolean isUserServiceDegraded(Throwable e) {
+        return e instanceof CallNotPermittedException || e instanceof BulkheadFullException
+                || e instanceof WebClientRequestException;
+    }
+
+    private RegisterRequest toRegisterRequest(Jwt jwt) {
+        RegisterRequest registerRequest = new RegisterRequest();
+        registerRequest.setEmail(jwt.getClaimAsString("email"));
+        registerRequest.setKeycloakId(jwt.getSubject());
+        registerRequest.setPassword("dummy@123123");
+        registerRequest.setFirstName(jwt.getClaimAsString("given_name"));
+        registerRequest.setLastName(jwt.getClaimAsString("family_name"));
+        return registerRequest;
     }
 }
@@ -0,0 +1,14 @@
+package com.fitness.gateway.cache;
+
+import org.springframework.http.MediaType;
+import org.springframework.util.DigestUtils;
+
+/**
+ * A cached 200 response body together with its content type and strong ETag.
+ */
+public record CachedResponse(String userId, MediaType contentType, byte[] body, String etag) {
+
+    public static CachedResponse of(String userId, MediaType contentType, byte[] body) {
+        return new CachedResponse(userId, contentType, body, "\"" + DigestUtils.md5DigestAsHex(body) + "\"");
+    }
+}
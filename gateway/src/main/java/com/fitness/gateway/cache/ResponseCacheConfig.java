@@ -0,0 +1,53 @@
+package com.fitness.gateway.cache;
+
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.Queue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ResponseCacheConfig {
+
+    @Value("${rabbitmq.exchange.name}")
+    private String exchange;
+
+    @Value("${rabbitmq.routing.key}")
+    private String routingKey;
+
+    @Value("${rabbitmq.routing.activity-deleted-key}")
+    private String activityDeletedKey;
+
+    @Value("${rabbitmq.routing.recommendation-stored-key}")
+    private String recommendationStoredKey;
+
+    // Every gateway instance needs its own copy of the user events, so each binds a private queue
+    @Bean
+    public Queue responseCacheInvalidationQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public DirectExchange activityExchange() {
+        return new DirectExchange(exchange);
+    }
+
+    // Tracked and updated activities share the tracking key
+    @Bean
+    public Binding responseCacheInvalidationBinding(Queue responseCacheInvalidationQueue, DirectExchange activityExchange) {
+        return BindingBuilder.bind(responseCacheInvalidationQueue).to(activityExchange).with(routingKey);
+    }
+
+    @Bean
+    public Binding activityDeletedInvalidationBinding(Queue responseCacheInvalidationQueue, DirectExchange activityExchange) {
+        return BindingBuilder.bind(responseCacheInvalidationQueue).to(activityExchange).with(activityDeletedKey);
+    }
+
+    @Bean
+    public Binding recommendationStoredInvalidationBinding(Queue responseCacheInvalidationQueue, DirectExchange activityExchange) {
+        return BindingBuilder.bind(responseCacheInvalidationQueue).to(activityExchange).with(recommendationStoredKey);
+    }
+}
@@ -0,0 +1,133 @@
+package com.fitness.gateway.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Serves whitelisted GET routes from a short-lived per-user cache. Every cached or freshly
+ * cached response carries a strong ETag, and a matching If-None-Match is answered with 304.
+ * Runs ahead of the rate limiter, so revalidations and hits cost no budget.
+ */
+@Component
+@Slf4j
+public class ResponseCacheFilter implements GlobalFilter, Ordered {
+
+    private static final String CACHE_STATUS_HEADER = "X-Cache";
+
+    private final UserResponseCache responseCache;
+    private final List<PathPattern> cacheablePaths;
+    private final boolean enabled;
+
+    public ResponseCacheFilter(UserResponseCache responseCache,
+                               @Value("${gateway.response-cache.enabled:true}") boolean enabled,
+                               @Value("${gateway.response-cache.paths:}") String[] paths) {
+        this.responseCache = responseCache;
+        this.enabled = enabled;
+        this.cacheablePaths = Arrays.stream(paths)
+                .map(String::trim)
+                .filter(path -> !path.isEmpty())
+                .map(PathPatternParser.defaultInstance::parse)
+                .toList();
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        String userId = request.getHeaders().getFirst("X-User-ID");
+        if (!enabled || userId == null || !HttpMethod.GET.equals(request.getMethod()) || !isCacheable(request)) {
+            return chain.filter(exchange);
+        }
+
+        String query = request.getURI().getRawQuery();
+        String key = userId + "|" + request.getURI().getRawPath() + (query != null ? "?" + query : "");
+        String ifNoneMatch = request.getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH);
+
+        CachedResponse cached = responseCache.get(key);
+        if (cached != null) {
+            return writeCached(exchange.getResponse(), cached, ifNoneMatch);
+        }
+
+        ServerHttpResponseDecorator cachingResponse = new ServerHttpResponseDecorator(exchange.getResponse()) {
+            @Override
+            public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                if (!HttpStatus.OK.equals(getStatusCode())) {
+                    return super.writeWith(body);
+                }
+                return DataBufferUtils.join(body).flatMap(buffer -> {
+                    byte[] bytes = new byte[buffer.readableByteCount()];
+                    buffer.read(bytes);
+                    DataBufferUtils.release(buffer);
+
+                    CachedResponse response = CachedResponse.of(userId, getHeaders().getContentType(), bytes);
+                    responseCache.put(key, response);
+                    applyValidators(getHeaders(), response, "MISS");
+                    if (response.etag().equals(ifNoneMatch)) {
+                        return notModified(getDelegate());
+                    }
+                    return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+                });
+            }
+        };
+        return chain.filter(exchange.mutate().response(cachingResponse).build());
+    }
+
+    // Must wrap the response before NettyWriteResponseFilter writes the upstream body
+    @Override
+    public int getOrder() {
+        return NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+    }
+
+    private boolean isCacheable(ServerHttpRequest request) {
+        PathContainer path = request.getPath().pathWithinApplication();
+        return cacheablePaths.stream().anyMatch(pattern -> pattern.matches(path));
+    }
+
+    private Mono<Void> writeCached(ServerHttpResponse response, CachedResponse cached, String ifNoneMatch) {
+        applyValidators(response.getHeaders(), cached, "HIT");
+        if (cached.etag().equals(ifNoneMatch)) {
+            return notModified(response);
+        }
+        response.setStatusCode(HttpStatus.OK);
+        if (cached.contentType() != null) {
+            response.getHeaders().setContentType(cached.contentType());
+        }
+        response.getHeaders().setContentLength(cached.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.body())));
+    }
+
+    private Mono<Void> notModified(ServerHttpResponse response) {
+        response.setStatusCode(HttpStatus.NOT_MODIFIED);
+        response.getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+        response.getHeaders().remove(HttpHeaders.CONTENT_TYPE);
+        return response.setComplete();
+    }
+
+    private void applyValidators(HttpHeaders headers, CachedResponse response, String cacheStatus) {
+        headers.setETag(response.etag());
+        // Browsers keep the body but must revalidate, which the gateway answers from memory
+        headers.setCacheControl("private, no-cache");
+        headers.set(CACHE_STATUS_HEADER, cacheStatus);
+    }
+}
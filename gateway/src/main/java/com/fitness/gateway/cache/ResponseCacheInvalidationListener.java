@@ -0,0 +1,35 @@
+package com.fitness.gateway.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drops a user's cached responses when one of their activities is tracked, updated or deleted,
+ * or when ai-service stores a recommendation for them. All of these events carry a userId.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ResponseCacheInvalidationListener {
+
+    private final UserResponseCache responseCache;
+    private final ObjectMapper objectMapper;
+
+    @RabbitListener(queues = "#{responseCacheInvalidationQueue.name}")
+    public void onUserEvent(Message message) {
+        try {
+            String userId = objectMapper.readTree(message.getBody()).path("userId").asText(null);
+            if (userId == null) {
+                return;
+            }
+            int invalidated = responseCache.invalidateUser(userId);
+            log.debug("Invalidated {} cached responses for user {}", invalidated, userId);
+        } catch (Exception e) {
+            log.warn("Could not read event for cache invalidation: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.fitness.gateway.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gateway response cache with a per-user key index, so dropping one user's entries touches
+ * only those entries instead of scanning the whole cache.
+ */
+@Component
+public class UserResponseCache {
+
+    private final Cache<String, CachedResponse> cache;
+    private final Map<String, Set<String>> keysByUser = new ConcurrentHashMap<>();
+
+    public UserResponseCache(MeterRegistry meterRegistry,
+                             @Value("${gateway.response-cache.max-size:10000}") long maxSize,
+                             @Value("${gateway.response-cache.ttl:30s}") Duration ttl) {
+        // The eviction listener runs inside the removal, so the index never outlives an expired or evicted entry
+        this.cache = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .<String, CachedResponse>evictionListener((key, response, cause) -> {
+                    if (key != null && response != null) {
+                        unindex(response.userId(), key);
+                    }
+                })
+                .recordStats()
+                .build(), "gatewayResponses");
+    }
+
+    public CachedResponse get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    public void put(String key, CachedResponse response) {
+        keysByUser.computeIfAbsent(response.userId(), userId -> ConcurrentHashMap.newKeySet()).add(key);
+        cache.put(key, response);
+    }
+
+    /**
+     * Drops every cached response for the user and returns how many keys were indexed.
+     */
+    public int invalidateUser(String userId) {
+        Set<String> keys = keysByUser.remove(userId);
+        if (keys == null) {
+            return 0;
+        }
+        cache.invalidateAll(keys);
+        return keys.size();
+    }
+
+    private void unindex(String userId, String key) {
+        keysByUser.computeIfPresent(userId, (id, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+}
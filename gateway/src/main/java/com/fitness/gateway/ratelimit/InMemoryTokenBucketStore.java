@@ -0,0 +1,57 @@
+package com.fitness.gateway.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Buckets kept in this gateway instance. Idle buckets are evicted, which is equivalent to them
+ * having refilled completely.
+ */
+@Component
+@ConditionalOnProperty(name = "gateway.rate-limit.redis.enabled", havingValue = "false", matchIfMissing = true)
+public class InMemoryTokenBucketStore implements TokenBucketStore {
+
+    private final Cache<String, TokenBucket> buckets;
+
+    public InMemoryTokenBucketStore(@Value("${gateway.rate-limit.max-tracked-keys:100000}") long maxTrackedKeys,
+                                    @Value("${gateway.rate-limit.idle-expiry:10m}") Duration idleExpiry) {
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxTrackedKeys)
+                .expireAfterAccess(idleExpiry)
+                .build();
+    }
+
+    @Override
+    public Mono<TokenBucketResult> tryConsume(String key, int replenishRate, int burstCapacity) {
+        TokenBucket bucket = buckets.get(key, k -> new TokenBucket(burstCapacity));
+        return Mono.just(bucket.tryConsume(replenishRate, burstCapacity, System.nanoTime()));
+    }
+
+    private static final class TokenBucket {
+        private double tokens;
+        private long lastRefillNanos = System.nanoTime();
+
+        private TokenBucket(int burstCapacity) {
+            this.tokens = burstCapacity;
+        }
+
+        synchronized TokenBucketResult tryConsume(int replenishRate, int burstCapacity, long nowNanos) {
+            double elapsedSeconds = (nowNanos - lastRefillNanos) / 1_000_000_000.0;
+            tokens = Math.min(burstCapacity, tokens + elapsedSeconds * replenishRate);
+            lastRefillNanos = nowNanos;
+
+            if (tokens >= 1) {
+                tokens -= 1;
+                return new TokenBucketResult(true, (long) tokens, 0);
+            }
+            long retryAfter = (long) Math.ceil((1 - tokens) / replenishRate);
+            return new TokenBucketResult(false, 0, Math.max(retryAfter, 1));
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.fitness.gateway.ratelimit;
+
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.security.Principal;
+
+@Configuration
+public class RateLimitConfig {
+
+    // Keyed on the authenticated JWT subject, never on a header the client controls
+    @Bean
+    public KeyResolver userKeyResolver() {
+        return exchange -> exchange.getPrincipal().map(Principal::getName);
+    }
+}
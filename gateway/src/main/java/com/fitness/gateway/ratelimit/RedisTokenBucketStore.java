@@ -0,0 +1,73 @@
+package com.fitness.gateway.ratelimit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Buckets shared by all gateway instances. The refill-and-take step runs as one Lua script so
+ * concurrent requests on different instances cannot overspend a bucket. If Redis is unreachable
+ * requests are let through rather than failing the whole API.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "gateway.rate-limit.redis.enabled", havingValue = "true")
+public class RedisTokenBucketStore implements TokenBucketStore {
+
+    private static final String KEY_PREFIX = "gateway:rate-limit:";
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> TOKEN_BUCKET_SCRIPT = RedisScript.of("""
+            local tokens_key = KEYS[1]
+            local timestamp_key = KEYS[2]
+            local rate = tonumber(ARGV[1])
+            local capacity = tonumber(ARGV[2])
+            local now = tonumber(ARGV[3])
+            local ttl = math.max(1, math.floor(capacity / rate * 2))
+
+            local last_tokens = tonumber(redis.call('get', tokens_key)) or capacity
+            local last_refreshed = tonumber(redis.call('get', timestamp_key)) or 0
+            local filled = math.min(capacity, last_tokens + math.max(0, now - last_refreshed) * rate)
+
+            local allowed = filled >= 1
+            local remaining = filled
+            local retry_after = 0
+            if allowed then
+              remaining = filled - 1
+            else
+              retry_after = math.max(1, math.ceil((1 - filled) / rate))
+            end
+
+            redis.call('setex', tokens_key, ttl, remaining)
+            redis.call('setex', timestamp_key, ttl, now)
+            return { allowed and 1 or 0, math.floor(remaining), retry_after }
+            """, List.class);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+
+    public RedisTokenBucketStore(ReactiveStringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    public Mono<TokenBucketResult> tryConsume(String key, int replenishRate, int burstCapacity) {
+        List<String> keys = List.of(KEY_PREFIX + key + ":tokens", KEY_PREFIX + key + ":timestamp");
+        String now = String.valueOf(System.currentTimeMillis() / 1000.0);
+        return redisTemplate.execute(TOKEN_BUCKET_SCRIPT, keys,
+                        List.of(String.valueOf(replenishRate), String.valueOf(burstCapacity), now))
+                .next()
+                .map(result -> new TokenBucketResult(
+                        ((Number) result.get(0)).longValue() == 1,
+                        ((Number) result.get(1)).longValue(),
+                        ((Number) result.get(2)).longValue()))
+                .onErrorResume(e -> {
+                    log.warn("Rate limit store unavailable, allowing request: {}", e.getMessage());
+                    return Mono.just(new TokenBucketResult(true, -1, 0));
+                });
+    }
+}
@@ -0,0 +1,8 @@
+package com.fitness.gateway.ratelimit;
+
+/**
+ * Outcome of one token request: remaining tokens after it, and when rejected, the whole number
+ * of seconds until a token will be available.
+ */
+public record TokenBucketResult(boolean allowed, long remaining, long retryAfterSeconds) {
+}
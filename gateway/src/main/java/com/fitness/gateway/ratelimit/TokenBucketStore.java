@@ -0,0 +1,12 @@
+package com.fitness.gateway.ratelimit;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Holds the per-user token buckets; each call takes one token from the bucket under key if one
+ * is available.
+ */
+public interface TokenBucketStore {
+
+    Mono<TokenBucketResult> tryConsume(String key, int replenishRate, int burstCapacity);
+}
@@ -0,0 +1,68 @@
+package com.fitness.gateway.ratelimit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-user token bucket for RequestRateLimiter routes. Each route sets its own budget through
+ * the user-rate-limiter.replenish-rate and user-rate-limiter.burst-capacity filter args, and
+ * buckets are keyed by route and user, so AI and activity calls draw on separate budgets.
+ */
+@Component
+@Primary
+public class UserRateLimiter extends AbstractRateLimiter<UserRateLimiter.Config> {
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "user-rate-limiter";
+
+    private final TokenBucketStore tokenBucketStore;
+    private final MeterRegistry meterRegistry;
+
+    public UserRateLimiter(ConfigurationService configurationService, TokenBucketStore tokenBucketStore,
+                           MeterRegistry meterRegistry) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        this.tokenBucketStore = tokenBucketStore;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        Config config = getConfig().get(routeId);
+        if (config == null) {
+            return Mono.error(new IllegalArgumentException("No user-rate-limiter configuration for route " + routeId));
+        }
+
+        return tokenBucketStore.tryConsume(routeId + ":" + id, config.getReplenishRate(), config.getBurstCapacity())
+                .map(result -> {
+                    meterRegistry.counter("gateway.rate-limit.requests",
+                            "route", routeId, "outcome", result.allowed() ? "allowed" : "rejected").increment();
+
+                    Map<String, String> headers = new HashMap<>();
+                    headers.put("X-RateLimit-Remaining", String.valueOf(result.remaining()));
+                    headers.put("X-RateLimit-Burst-Capacity", String.valueOf(config.getBurstCapacity()));
+                    if (!result.allowed()) {
+                        headers.put("Retry-After", String.valueOf(result.retryAfterSeconds()));
+                    }
+                    return new Response(result.allowed(), headers);
+                });
+    }
+
+    @Data
+    @Validated
+    public static class Config {
+        @Min(1)
+        private int replenishRate;
+
+        @Min(1)
+        private int burstCapacity = 1;
+    }
+}
@@ -0,0 +1,23 @@
+package com.fitness.gateway.user;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Thresholds live under resilience4j.*.instances.userService in the gateway config
+@Configuration
+public class ResilienceConfig {
+
+    @Bean
+    public CircuitBreaker userServiceCircuitBreaker(CircuitBreakerRegistry circuitBreakerRegistry) {
+        return circuitBreakerRegistry.circuitBreaker("userService");
+    }
+
+    @Bean
+    public Bulkhead userServiceBulkhead(BulkheadRegistry bulkheadRegistry) {
+        return bulkheadRegistry.bulkhead("userService");
+    }
+}
@@ -0,0 +1,32 @@
+package com.fitness.gateway.user;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class UserCacheConfig {
+
+    @Value("${user.sync.cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${user.sync.cache.ttl:30m}")
+    private Duration ttl;
+
+    // Keycloak ids known to exist in USER-SERVICE; expiry bounds how long a deleted user is trusted
+    @Bean
+    public Cache<String, Boolean> syncedUserCache(MeterRegistry meterRegistry) {
+        Cache<String, Boolean> cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "syncedUsers");
+    }
+}
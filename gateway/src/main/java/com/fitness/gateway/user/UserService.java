@@ -1,5 +1,9 @@
 package com.fitness.gateway.user;
 
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -13,6 +17,8 @@ import reactor.core.publisher.Mono;
 @RequiredArgsConstructor
 public class UserService {
     private final WebClient userServiceWebClient;
+    private final CircuitBreaker userServiceCircuitBreaker;
+    private final Bulkhead userServiceBulkhead;
 
     public Mono<Boolean> validateUser(String userId) {
         log.info("Calling User Validation API for userId: {}", userId);
@@ -20,6 +26,8 @@ public class UserService {
                     .uri("/api/users/{userId}/validate", userId)
                     .retrieve()
                     .bodyToMono(Boolean.class)
+                    .transformDeferred(BulkheadOperator.of(userServiceBulkhead))
+                    .transformDeferred(CircuitBreakerOperator.of(userServiceCircuitBreaker))
                     .onErrorResume(WebClientResponseException.class, e -> {
                         if (e.getStatusCode() == HttpStatus.NOT_FOUND)
                             return Mono.error(new RuntimeException("User Not Found: " + userId));
@@ -36,6 +44,8 @@ public class UserService {
                 .bodyValue(request)
                 .retrieve()
                 .bodyToMono(UserResponse.class)
+                .transformDeferred(BulkheadOperator.of(userServiceBulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(userServiceCircuitBreaker))
                 .onErrorResume(WebClientResponseException.class, e -> {
                     if (e.getStatusCode() == HttpStatus.BAD_REQUEST)
                         return Mono.error(new RuntimeException("Bad Request: " + e.getMessage()));
@@ -0,0 +1,71 @@
+package com.fitness.gateway.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryTokenBucketStoreTest {
+
+    private final InMemoryTokenBucketStore store = new InMemoryTokenBucketStore(1000, Duration.ofMinutes(10));
+
+    @Test
+    void allowsBurstThenRejects() {
+        for (long remaining = 2; remaining >= 0; remaining--) {
+            TokenBucketResult result = consume("route:user-1", 1, 3);
+            assertTrue(result.allowed());
+            assertEquals(remaining, result.remaining());
+            assertEquals(0, result.retryAfterSeconds());
+        }
+
+        TokenBucketResult rejected = consume("route:user-1", 1, 3);
+        assertFalse(rejected.allowed());
+        assertEquals(0, rejected.remaining());
+    }
+
+    @Test
+    void reportsAtLeastOneSecondRetryAfter() {
+        consume("route:user-1", 10, 1);
+
+        // At 10 tokens/s the next token is ~100ms away, rounded up to a whole second
+        assertEquals(1, consume("route:user-1", 10, 1).retryAfterSeconds());
+    }
+
+    @Test
+    void reportsRetryAfterFromReplenishRate() {
+        TokenBucketResult result = null;
+        for (int i = 0; i < 3; i++) {
+            result = consume("route:user-1", 1, 1);
+        }
+
+        // Two rejected attempts do not deepen the deficit, so the next token is still about a second out
+        assertFalse(result.allowed());
+        assertEquals(1, result.retryAfterSeconds());
+    }
+
+    @Test
+    void keepsSeparateBucketsPerKey() {
+        consume("route:user-1", 1, 1);
+        assertFalse(consume("route:user-1", 1, 1).allowed());
+
+        assertTrue(consume("route:user-2", 1, 1).allowed());
+        assertTrue(consume("other-route:user-1", 1, 1).allowed());
+    }
+
+    @Test
+    void refillsOverTime() throws InterruptedException {
+        consume("route:user-1", 20, 1);
+        assertFalse(consume("route:user-1", 20, 1).allowed());
+
+        Thread.sleep(100);
+
+        assertTrue(consume("route:user-1", 20, 1).allowed());
+    }
+
+    private TokenBucketResult consume(String key, int replenishRate, int burstCapacity) {
+        return store.tryConsume(key, replenishRate, burstCapacity).block();
+    }
+}